@@ -0,0 +1,65 @@
+#!/usr/bin/env python3
+"""Compares two JMH JSON result files and fails if a benchmark regressed.
+
+Benchmarks are matched by name and parameters. A benchmark regressed if its
+score is worse than the baseline by more than the threshold, where worse is
+lower for throughput and higher for the time based modes. Benchmarks missing
+from either file are reported but do not fail the comparison, nor does a
+missing baseline file.
+"""
+import argparse
+import json
+import os
+import sys
+
+
+def load(path):
+    with open(path) as file:
+        results = json.load(file)
+    return {key(result): result for result in results}
+
+
+def key(result):
+    params = ','.join(f'{name}={value}' for name, value in sorted(result.get('params', {}).items()))
+    return f"{result['benchmark']}({params})"
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument('baseline')
+    parser.add_argument('current')
+    parser.add_argument('--threshold', type=float, default=0.25,
+                        help='relative change of the score that counts as regression')
+    args = parser.parse_args()
+
+    if not os.path.exists(args.baseline):
+        print(f'No baseline at {args.baseline}, nothing to compare')
+        return 0
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+    regressions = 0
+    for name, result in sorted(current.items()):
+        if name not in baseline:
+            print(f'NEW         {name}')
+            continue
+        before = baseline[name]['primaryMetric']['score']
+        after = result['primaryMetric']['score']
+        unit = result['primaryMetric']['scoreUnit']
+        change = (after - before) / before if before else 0.0
+        # higher is better only for throughput
+        worse = -change if result['mode'] == 'thrpt' else change
+        status = 'REGRESSION' if worse > args.threshold else 'ok'
+        regressions += status == 'REGRESSION'
+        print(f'{status:<11} {name}: {before:.3f} -> {after:.3f} {unit} ({change:+.1%})')
+    for name in sorted(baseline.keys() - current.keys()):
+        print(f'MISSING     {name}')
+
+    if regressions:
+        print(f'{regressions} benchmarks regressed by more than {args.threshold:.0%}')
+        return 1
+    return 0
+
+
+if __name__ == '__main__':
+    sys.exit(main())
@@ -0,0 +1,57 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.service.AuthService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures AuthService.authUser against user tables of different sizes. Known
+ * tokens are drawn uniformly from all users, so the hit rate of the token
+ * store drops once the table outgrows it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int userCount;
+
+    private ConfigurableApplicationContext context;
+
+    private AuthService authService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContexts.start(WebApplicationType.NONE, "auth-benchmark");
+        BenchmarkContexts.insertUsers(context, userCount, "hash");
+        authService = context.getBean(AuthService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void authUser_knownToken() {
+        long id = ThreadLocalRandom.current().nextLong(1, userCount + 1L);
+        authService.authUser(BenchmarkContexts.tokenOf(id));
+    }
+
+    @Benchmark
+    public Object authUser_unknownToken() {
+        try {
+            authService.authUser("unknown-token");
+            return null;
+        }
+        catch (ResponseStatusException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.Application;
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts application contexts for the benchmarks, each on its own in-memory
+ * database unless the properties name another datasource url, and fills
+ * them with users directly through JDBC, which is much faster than going
+ * through the UserService for large tables.
+ */
+final class BenchmarkContexts {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    private BenchmarkContexts() {}
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String database,
+                                                String... properties) {
+        List<String> allProperties = new ArrayList<>(List.of(
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN",
+                "server.port=0",
+                "spring.h2.console.enabled=false"));
+        // repeated command line arguments would be joined rather than overridden
+        if (Arrays.stream(properties).noneMatch(property -> property.startsWith("spring.datasource.url="))) {
+            allProperties.add("spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1");
+        }
+        allProperties.addAll(Arrays.asList(properties));
+
+        // passed as command line arguments, which take precedence over application.properties
+        return new SpringApplicationBuilder(Application.class)
+                .web(webApplicationType)
+                .run(allProperties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+
+    /**
+     * Inserts users with the ids 1 to count. Their usernames and tokens are
+     * derived from the id, see usernameOf and tokenOf. The ids bypass the id
+     * generator, hence contexts filled this way must not create users.
+     */
+    static void insertUsers(ConfigurableApplicationContext context, int count, String passwordHash) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        // Hibernate quotes the table name since USER is a keyword, see application.properties
+        String sql = "insert into \"user\" (id, username, password, token, status, creation_date, version) "
+                + "values (?, ?, ?, ?, ?, ?, 0)";
+        Date creationDate = Date.valueOf(LocalDate.now());
+
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int id = 1; id <= count; id++) {
+            batch.add(new Object[]{id, usernameOf(id), passwordHash, tokenOf(id), UserStatus.OFFLINE.ordinal(), creationDate});
+
+            if (batch.size() == INSERT_BATCH_SIZE || id == count) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+    }
+
+    static String usernameOf(long id) {
+        return "user-" + id;
+    }
+
+    static String tokenOf(long id) {
+        return "token-" + id;
+    }
+}
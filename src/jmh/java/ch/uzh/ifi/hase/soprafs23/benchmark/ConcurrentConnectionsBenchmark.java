@@ -0,0 +1,91 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test comparing the platform thread pool of Tomcat with virtual threads.
+ * Every operation opens the given number of concurrent requests against a
+ * running server and waits until all of them are answered, hence the time
+ * per operation grows once the server cannot serve all connections at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrentConnectionsBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"200", "2000"})
+    public int concurrentRequests;
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET, "concurrent-connections-benchmark",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "server.tomcat.max-connections=10000",
+                "server.tomcat.accept-count=10000");
+        BenchmarkContexts.insertUsers(context, USER_COUNT, "hash");
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int getUsers() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            long id = i % USER_COUNT + 1;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + id))
+                    .header("Auth-Token", BenchmarkContexts.tokenOf(id))
+                    .build();
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+
+        int failed = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() != 200) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            throw new IllegalStateException(String.format("%d of %d requests failed", failed, concurrentRequests));
+        }
+        return concurrentRequests;
+    }
+}
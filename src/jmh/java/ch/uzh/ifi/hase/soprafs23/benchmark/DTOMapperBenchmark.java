@@ -0,0 +1,68 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.Session;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.SessionGetDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.UserGetDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.UserPostDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.mapper.DTOMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the MapStruct conversions used on every request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DTOMapperBenchmark {
+
+    private User user;
+    private UserSummary userSummary;
+    private UserPostDTO userPostDTO;
+    private Session session;
+
+    @Setup
+    public void setup() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        user.setToken("token");
+        user.setStatus(UserStatus.ONLINE);
+        user.setBirthday(LocalDate.parse("1998-12-12"));
+        user.setCreationDate(LocalDate.now());
+
+        userSummary = new UserSummary(1L, "testUsername", UserStatus.ONLINE, LocalDate.parse("1998-12-12"), LocalDate.now(), 0);
+
+        userPostDTO = new UserPostDTO();
+        userPostDTO.setUsername("testUsername");
+        userPostDTO.setPassword("password");
+
+        session = new Session("testUsername", null, 1L, "token");
+    }
+
+    @Benchmark
+    public UserGetDTO convertEntityToUserGetDTO() {
+        return DTOMapper.INSTANCE.convertEntityToUserGetDTO(user);
+    }
+
+    @Benchmark
+    public UserGetDTO convertUserSummaryToUserGetDTO() {
+        return DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(userSummary);
+    }
+
+    @Benchmark
+    public User convertUserPostDTOtoEntity() {
+        return DTOMapper.INSTANCE.convertUserPostDTOtoEntity(userPostDTO);
+    }
+
+    @Benchmark
+    public SessionGetDTO convertEntityToSessionGetDTO() {
+        return DTOMapper.INSTANCE.convertEntityToSessionGetDTO(session);
+    }
+}
@@ -0,0 +1,108 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of user reads while more logins are in flight than Tomcat has
+ * request threads. The logins saturate the password hashing pool, the
+ * sampled latencies of the reads show whether they still get a thread.
+ * Compares the platform thread pool of Tomcat with virtual threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoginUnderLoadBenchmark {
+
+    private static final int USER_COUNT = 1000;
+
+    private static final String PASSWORD = "password";
+
+    private static final int TOMCAT_THREADS = 8;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private HttpClient httpClient;
+
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET, "login-under-load-benchmark",
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                "security.password.hashing.queue-capacity=1024",
+                "security.password.hashing.timeout=60s",
+                "auth.login-rate-limit.username.capacity=1000000",
+                "auth.login-rate-limit.address.capacity=1000000");
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        BenchmarkContexts.insertUsers(context, USER_COUNT, passwordHash);
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4 * TOMCAT_THREADS)
+    public int login() throws Exception {
+        long id = randomId();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/session"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(String.format("{\"username\": \"%s\", \"password\": \"%s\"}",
+                        BenchmarkContexts.usernameOf(id), PASSWORD)))
+                .build();
+        return expectOk(request);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int getUser() throws Exception {
+        long id = randomId();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + id))
+                .header("Auth-Token", BenchmarkContexts.tokenOf(id))
+                .build();
+        return expectOk(request);
+    }
+
+    private int expectOk(HttpRequest request) throws Exception {
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status != 200) {
+            throw new IllegalStateException(String.format("Benchmark request failed with status %d", status));
+        }
+        return status;
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, USER_COUNT + 1L);
+    }
+}
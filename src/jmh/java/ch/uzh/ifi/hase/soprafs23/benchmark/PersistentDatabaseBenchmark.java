@@ -0,0 +1,94 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency on a table of a million users, kept in memory or in a
+ * database file of the persistent profile with a small and a large page
+ * cache. The lookups pick random users, such that the second-level cache
+ * rarely holds them and the queries go to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistentDatabaseBenchmark {
+
+    private static final int USER_COUNT = 1_000_000;
+
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Page cache of the database file in KB, memory keeps the database in
+     * memory instead.
+     */
+    @Param({"memory", "16384", "262144"})
+    public String cacheSize;
+
+    private Path directory;
+
+    private ConfigurableApplicationContext context;
+
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (cacheSize.equals("memory")) {
+            context = BenchmarkContexts.start(WebApplicationType.NONE, "persistent-database-benchmark");
+        }
+        else {
+            directory = Files.createTempDirectory("persistent-database-benchmark");
+            context = BenchmarkContexts.start(WebApplicationType.NONE, "persistent-database-benchmark",
+                    "spring.profiles.active=persistent",
+                    "database.directory=" + directory,
+                    "database.cache-size=" + cacheSize,
+                    // the url of the profile, without the compaction on close which only prolongs the teardown
+                    "spring.datasource.url=jdbc:h2:file:${database.directory}/soprafs23;CACHE_SIZE=${database.cache-size};"
+                            + "WRITE_DELAY=${database.write-delay};MAX_COMPACT_TIME=0;"
+                            + "AUTO_COMPACT_FILL_RATE=${database.auto-compact-fill-rate};DB_CLOSE_ON_EXIT=FALSE");
+        }
+        BenchmarkContexts.insertUsers(context, USER_COUNT, "hash");
+        userRepository = context.getBean("userRepository", UserRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        if (directory != null) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findByToken() {
+        return userRepository.findByToken(BenchmarkContexts.tokenOf(randomId()));
+    }
+
+    @Benchmark
+    public Optional<UserSummary> findSummaryById() {
+        return userRepository.findSummaryById(randomId());
+    }
+
+    @Benchmark
+    public List<UserSummary> findSummariesAfter() {
+        return userRepository.findSummariesAfter(randomId(), PageRequest.of(0, PAGE_SIZE));
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, USER_COUNT + 1L);
+    }
+}
@@ -0,0 +1,97 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from launching a new JVM until the first request is
+ * answered, for the bootJar and for the fast start layout with its class
+ * data sharing archive, see the faststartJar and cdsArchive tasks. Both are
+ * launched from the project directory like the entrypoint in app.yaml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+
+    private static final long TIMEOUT_MILLIS = 120_000;
+
+    @Param({"bootJar", "faststart"})
+    public String launch;
+
+    private File projectDir;
+
+    private HttpClient httpClient;
+
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        projectDir = new File(System.getProperty("startup.project-dir", "."));
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            process.waitFor();
+            process = null;
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        if (launch.equals("faststart")) {
+            command.addAll(List.of("-XX:SharedArchiveFile=build/faststart/application.jsa",
+                    "-jar", "build/faststart/soprafs23.jar", "--spring.profiles.active=faststart"));
+        }
+        else {
+            command.addAll(List.of("-jar", "build/libs/soprafs23.jar"));
+        }
+        command.add("--server.port=" + port);
+
+        process = new ProcessBuilder(command)
+                .directory(projectDir)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return awaitFirstResponse(URI.create("http://localhost:" + port + "/"));
+    }
+
+    private int awaitFirstResponse(URI uri) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(String.format("The application exited with %d", process.exitValue()));
+            }
+            try {
+                return httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+            }
+            catch (IOException e) {
+                // not listening yet
+                Thread.sleep(10);
+            }
+        }
+        throw new IllegalStateException("The application did not answer within the timeout");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Measures UserController end to end, from the DispatcherServlet through the
+ * services and the database to the serialized response, without the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserControllerBenchmark {
+
+    private static final String PASSWORD = "password";
+
+    @Param({"10000"})
+    public int userCount;
+
+    private ConfigurableApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = BenchmarkContexts.start(WebApplicationType.SERVLET, "user-controller-benchmark");
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        BenchmarkContexts.insertUsers(context, userCount, passwordHash);
+
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+
+        // make sure the benchmarks measure successful requests, not rejected ones
+        expectOk(get("/users/1").header("Auth-Token", BenchmarkContexts.tokenOf(1)));
+        expectOk(login(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getUser() throws Exception {
+        long id = randomId();
+        return perform(get("/users/" + id).header("Auth-Token", BenchmarkContexts.tokenOf(id)));
+    }
+
+    @Benchmark
+    public String getUsersPage() throws Exception {
+        long id = randomId();
+        return perform(get("/users")
+                .param("limit", "100")
+                .param("after", String.valueOf(id))
+                .header("Auth-Token", BenchmarkContexts.tokenOf(id)));
+    }
+
+    @Benchmark
+    public String login() throws Exception {
+        return perform(login(randomId()));
+    }
+
+    private RequestBuilder login(long id) {
+        // one client address per user, such that the login rate limit of a single address is not hit
+        return post("/session")
+                .with(request -> {
+                    request.setRemoteAddr(String.format("10.%d.%d.%d", id >> 16 & 0xff, id >> 8 & 0xff, id & 0xff));
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(String.format("{\"username\": \"%s\", \"password\": \"%s\"}", BenchmarkContexts.usernameOf(id), PASSWORD));
+    }
+
+    /**
+     * Logins are asynchronous, their response is written by a second dispatch.
+     */
+    private MockHttpServletResponse dispatch(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result.getResponse();
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, userCount + 1L);
+    }
+
+    private String perform(RequestBuilder request) throws Exception {
+        return dispatch(request).getContentAsString();
+    }
+
+    private void expectOk(RequestBuilder request) throws Exception {
+        MockHttpServletResponse response = dispatch(request);
+        if (response.getStatus() != 200) {
+            throw new IllegalStateException(String.format("Benchmark request failed with status %d", response.getStatus()));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportResult;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportService;
+import ch.uzh.ifi.hase.soprafs23.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the insert throughput of single and bulk user creation, with one
+ * sequence call per id (allocation size 1) and with pooled id allocation.
+ * Passwords are hashed with the lowest BCrypt strength, such that the
+ * hashing does not hide the cost of the inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserInsertBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Param({"1", "50"})
+    public int allocationSize;
+
+    private final AtomicLong usernameCounter = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private UserService userService;
+
+    private UserImportService userImportService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContexts.start(WebApplicationType.NONE, "user-insert-benchmark-" + allocationSize,
+                "spring.jpa.properties.user.id.allocation_size=" + allocationSize,
+                "security.password.strength=4");
+        userService = context.getBean(UserService.class);
+        userImportService = context.getBean(UserImportService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User createUser() {
+        return userService.createUser(newUser());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<UserImportResult> importUsers() {
+        List<User> users = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            users.add(newUser());
+        }
+        return userImportService.importUsers(users);
+    }
+
+    private User newUser() {
+        User user = new User();
+        user.setUsername(BenchmarkContexts.usernameOf(usernameCounter.incrementAndGet()));
+        user.setPassword("password");
+        return user;
+    }
+}
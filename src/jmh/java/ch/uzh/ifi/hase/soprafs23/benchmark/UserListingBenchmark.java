@@ -0,0 +1,96 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.UserGetDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures the serialization of the user listing in each format, with and
+ * without gzip. Every invocation returns the size of the payload in bytes,
+ * the sizes are printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserListingBenchmark {
+
+    @Param({"100000"})
+    public int userCount;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private List<UserGetDTO> users;
+
+    private ObjectWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        users = new ArrayList<>(userCount);
+        for (long id = 1; id <= userCount; id++) {
+            UserGetDTO user = new UserGetDTO();
+            user.setId(id);
+            user.setUsername(BenchmarkContexts.usernameOf(id));
+            user.setStatus(id % 10 == 0 ? UserStatus.ONLINE : UserStatus.OFFLINE);
+            user.setBirthday(id % 2 == 0 ? LocalDate.of(1998, 12, 12) : null);
+            user.setCreationDate(LocalDate.of(2023, 3, 1));
+            users.add(user);
+        }
+
+        // configured like the message converters, see MessageConverterConfig
+        writer = Jackson2ObjectMapperBuilder.json().factory(factory()).build().writerFor(new TypeReference<List<UserGetDTO>>() {});
+
+        System.out.printf("%n%s%s payload of %d users: %d bytes%n", format, gzip ? " gzip" : "", userCount, serialize());
+    }
+
+    @Benchmark
+    public long serialize() throws IOException {
+        CountingOutputStream counter = new CountingOutputStream();
+        try (OutputStream outputStream = gzip ? new GZIPOutputStream(counter, 8192) : counter) {
+            writer.writeValue(outputStream, users);
+        }
+        return counter.count;
+    }
+
+    private JsonFactory factory() {
+        switch (format) {
+            case "smile":
+                return new SmileFactory();
+            case "cbor":
+                return new CBORFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
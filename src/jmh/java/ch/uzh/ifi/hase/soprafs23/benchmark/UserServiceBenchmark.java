@@ -0,0 +1,62 @@
+package ch.uzh.ifi.hase.soprafs23.benchmark;
+
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.service.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures user creation including the password hashing, next to the cost of
+ * the hashing alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserServiceBenchmark {
+
+    private final AtomicLong usernameCounter = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+
+    private UserService userService;
+
+    private PasswordEncoder passwordEncoder;
+
+    private String passwordHash;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContexts.start(WebApplicationType.NONE, "user-service-benchmark");
+        userService = context.getBean(UserService.class);
+        passwordEncoder = context.getBean(PasswordEncoder.class);
+        passwordHash = passwordEncoder.encode("password");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public User createUser() {
+        User user = new User();
+        user.setUsername(BenchmarkContexts.usernameOf(usernameCounter.incrementAndGet()));
+        user.setPassword("password");
+        return userService.createUser(user);
+    }
+
+    @Benchmark
+    public String encodePassword() {
+        return passwordEncoder.encode("password");
+    }
+
+    @Benchmark
+    public boolean matchPassword() {
+        return passwordEncoder.matches("password", passwordHash);
+    }
+}
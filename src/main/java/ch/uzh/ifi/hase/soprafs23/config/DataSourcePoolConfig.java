@@ -0,0 +1,47 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Data Source Pool Configuration
+ * Sizes the connection pool of the production profile from the number of
+ * cores instead of the fixed default of ten connections: connections-per-core
+ * connections per core plus extra-connections, following the sizing formula
+ * of HikariCP. The pool is kept at that size, such that a burst of requests
+ * does not have to wait for new connections to be opened.
+ */
+@Configuration
+@Profile("production")
+public class DataSourcePoolConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourcePoolConfig.class);
+
+    @Bean
+    public static BeanPostProcessor dataSourcePoolSizer(@Value("${datasource.pool.connections-per-core:2}") int connectionsPerCore,
+                                                        @Value("${datasource.pool.extra-connections:1}") int extraConnections) {
+        int poolSize = connectionsPerCore * Runtime.getRuntime().availableProcessors() + extraConnections;
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("The connection pool needs at least one connection.");
+        }
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    HikariDataSource dataSource = (HikariDataSource) bean;
+                    dataSource.setMaximumPoolSize(poolSize);
+                    dataSource.setMinimumIdle(poolSize);
+                    log.info("Sized the connection pool {} to {} connections", dataSource.getPoolName(), poolSize);
+                }
+                return bean;
+            }
+        };
+    }
+}
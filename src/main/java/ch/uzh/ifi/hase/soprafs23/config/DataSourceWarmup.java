@@ -0,0 +1,107 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Data Source Warmup
+ * Self-test run at startup, before the application reports to be ready. It
+ * runs the finder queries of the UserRepository once on every connection of
+ * the pool: every query holds its connection until all queries are done, so
+ * no two of them share a connection. This opens all connections and lets
+ * every one of them prepare the statements of the finders, instead of the
+ * first requests paying for it. The startup fails if the database cannot be
+ * queried.
+ */
+@Component
+@ConditionalOnProperty(name = "datasource.warmup.enabled", havingValue = "true")
+public class DataSourceWarmup implements ApplicationRunner {
+
+    private static final String WARMUP_VALUE = "warmup";
+
+    private final Logger log = LoggerFactory.getLogger(DataSourceWarmup.class);
+
+    private final UserRepository userRepository;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+
+    public DataSourceWarmup(@Qualifier("userRepository") UserRepository userRepository, DataSource dataSource,
+                            PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        int connections = 1;
+        long timeoutMillis = 30_000;
+        if (dataSource instanceof HikariDataSource) {
+            connections = ((HikariDataSource) dataSource).getMaximumPoolSize();
+            timeoutMillis = ((HikariDataSource) dataSource).getConnectionTimeout();
+        }
+
+        long start = System.nanoTime();
+        CountDownLatch queried = new CountDownLatch(connections);
+        List<Future<?>> futures = new ArrayList<>(connections);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                long timeout = timeoutMillis;
+                futures.add(executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                    runFinders();
+                    queried.countDown();
+                    awaitOthers(queried, timeout);
+                })));
+            }
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            }
+            catch (ExecutionException e) {
+                throw new IllegalStateException("The warmup of the data source failed.", e.getCause());
+            }
+        }
+        log.info("Warmed up {} connections in {} ms", connections, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void runFinders() {
+        userRepository.findByToken(WARMUP_VALUE);
+        userRepository.findByUsername(WARMUP_VALUE);
+        userRepository.findById(0L);
+        userRepository.findExistingUsernames(List.of(WARMUP_VALUE));
+        userRepository.findSummaryById(0L);
+        userRepository.findSummariesAfter(Long.MAX_VALUE, PageRequest.of(0, 1));
+    }
+
+    /**
+     * Holds on to the connection until every task has queried. If the pool
+     * is busy with requests already, continues after the connection timeout
+     * rather than waiting for a connection that is not released.
+     */
+    private static void awaitOthers(CountDownLatch queried, long timeoutMillis) {
+        try {
+            queried.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import ch.uzh.ifi.hase.soprafs23.service.InMemoryTokenStore;
+import ch.uzh.ifi.hase.soprafs23.service.LoginRateLimiter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Metrics Configuration
+ * Spring Boot times every request (http.server.requests) and every repository
+ * call (spring.data.repository.invocations) on its own. This configuration
+ * adds the timers of methods annotated with @Timed, such as the auth checks
+ * of the AuthService, exposes the counters of the token store and the login
+ * rate limiter as meters and adds the saturation of the connection pool to
+ * the pool metrics of HikariCP. Percentiles are configured per meter in
+ * application.properties and scraped from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder tokenStoreMetrics(ObjectProvider<InMemoryTokenStore> tokenStore) {
+        return meterRegistry -> tokenStore.ifAvailable(store -> {
+            Gauge.builder("auth.token-store.size", store, InMemoryTokenStore::size)
+                    .description("Number of cached auth tokens")
+                    .register(meterRegistry);
+            FunctionCounter.builder("auth.token-store.lookups", store, InMemoryTokenStore::getHitCount)
+                    .tag("result", "hit")
+                    .register(meterRegistry);
+            FunctionCounter.builder("auth.token-store.lookups", store, InMemoryTokenStore::getMissCount)
+                    .tag("result", "miss")
+                    .register(meterRegistry);
+            FunctionCounter.builder("auth.token-store.evictions", store, InMemoryTokenStore::getEvictionCount)
+                    .register(meterRegistry);
+        });
+    }
+
+    @Bean
+    public MeterBinder loginRateLimiterMetrics(ObjectProvider<LoginRateLimiter> loginRateLimiter) {
+        return meterRegistry -> loginRateLimiter.ifAvailable(limiter -> {
+            FunctionCounter.builder("auth.login.attempts", limiter, LoginRateLimiter::getAllowedCount)
+                    .tag("result", "allowed")
+                    .register(meterRegistry);
+            FunctionCounter.builder("auth.login.attempts", limiter, LoginRateLimiter::getRejectedCount)
+                    .tag("result", "rejected")
+                    .register(meterRegistry);
+            Gauge.builder("auth.login.buckets", limiter, LoginRateLimiter::size)
+                    .description("Number of login rate limit buckets")
+                    .register(meterRegistry);
+        });
+    }
+
+    @Bean
+    public MeterBinder dataSourcePoolMetrics(ObjectProvider<DataSource> dataSource) {
+        return meterRegistry -> dataSource.ifAvailable(source -> {
+            if (source instanceof HikariDataSource) {
+                HikariDataSource hikariDataSource = (HikariDataSource) source;
+                Gauge.builder("datasource.pool.saturation", hikariDataSource, MetricsConfig::saturation)
+                        .description("Share of the connections in use, 1 once requests have to wait for a connection")
+                        .register(meterRegistry);
+            }
+        });
+    }
+
+    private static double saturation(HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        if (pool == null) {
+            return Double.NaN;
+        }
+        return (double) pool.getActiveConnections() / dataSource.getMaximumPoolSize();
+    }
+}
@@ -0,0 +1,83 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import ch.uzh.ifi.hase.soprafs23.security.OffloadingPasswordEncoder;
+import ch.uzh.ifi.hase.soprafs23.security.TimedPasswordEncoder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Password Encoder Configuration
+ * The BCrypt strength is either fixed by security.password.strength or, if
+ * security.password.target-latency is set, calibrated at startup to the
+ * highest strength whose hashing stays within the target on this machine.
+ * Stored hashes of a lower strength are upgraded on the next login.
+ * The time spent hashing is recorded by a TimedPasswordEncoder, the load of
+ * the hashing pool by two gauges.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 31;
+
+    private static final int CALIBRATION_RUNS = 3;
+
+    private final Logger log = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${security.password.strength:10}") int strength,
+                                           @Value("${security.password.target-latency:#{null}}") Duration targetLatency,
+                                           @Value("${security.password.hashing.threads:0}") int threads,
+                                           @Value("${security.password.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${security.password.hashing.timeout:5s}") Duration timeout,
+                                           MeterRegistry meterRegistry) {
+        int effectiveStrength = targetLatency == null ? strength : calibrateStrength(targetLatency);
+        int effectiveThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        log.info("Hashing passwords with BCrypt strength {} on {} threads", effectiveStrength, effectiveThreads);
+        PasswordEncoder encoder = new TimedPasswordEncoder(new BCryptPasswordEncoder(effectiveStrength), meterRegistry);
+        OffloadingPasswordEncoder offloadingEncoder = new OffloadingPasswordEncoder(encoder, effectiveThreads, queueCapacity, timeout);
+
+        Gauge.builder("security.password.hashing.queued", offloadingEncoder, OffloadingPasswordEncoder::getQueueSize)
+                .description("Number of hashing tasks waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("security.password.hashing.active", offloadingEncoder, OffloadingPasswordEncoder::getActiveCount)
+                .description("Number of busy hashing threads")
+                .register(meterRegistry);
+        return offloadingEncoder;
+    }
+
+    /**
+     * Every additional strength doubles the hashing time, hence it is enough
+     * to measure the minimal strength and extrapolate from there.
+     */
+    private int calibrateStrength(Duration targetLatency) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        long fastestNanos = Long.MAX_VALUE;
+        for (int run = 0; run < CALIBRATION_RUNS; run++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+
+        int strength = MIN_STRENGTH;
+        long expectedNanos = fastestNanos;
+        while (strength < MAX_STRENGTH && expectedNanos * 2 <= targetLatency.toNanos()) {
+            strength++;
+            expectedNanos *= 2;
+        }
+
+        log.info("Calibrated BCrypt strength {} for a target latency of {} ms (strength {} took {} ms)",
+                strength, targetLatency.toMillis(), MIN_STRENGTH, fastestNanos / 1_000_000);
+        return strength;
+    }
+}
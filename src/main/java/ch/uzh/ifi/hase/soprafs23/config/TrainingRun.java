@@ -0,0 +1,74 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Training Run
+ * Enabled with startup.training-run=true by the cdsArchive task of the
+ * build, which records every class loaded by this run in a class data
+ * sharing archive. Once the application is ready, it sends the requests a
+ * cold instance typically serves first to itself, so that the classes
+ * behind them are archived as well, and exits.
+ */
+@Component
+@ConditionalOnProperty(name = "startup.training-run", havingValue = "true")
+public class TrainingRun implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String USER_JSON = "{\"username\": \"training\", \"password\": \"training\"}";
+
+    private final Logger log = LoggerFactory.getLogger(TrainingRun.class);
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        int exitCode = 0;
+        try {
+            int port = ((WebServerApplicationContext) event.getApplicationContext()).getWebServer().getPort();
+            train("http://localhost:" + port);
+        }
+        catch (IOException | RuntimeException e) {
+            log.error("Training run failed", e);
+            exitCode = 1;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exitCode = 1;
+        }
+        int finalExitCode = exitCode;
+        System.exit(SpringApplication.exit(event.getApplicationContext(), () -> finalExitCode));
+    }
+
+    private void train(String baseUrl) throws IOException, InterruptedException {
+        HttpClient httpClient = HttpClient.newHttpClient();
+
+        send(httpClient, HttpRequest.newBuilder(URI.create(baseUrl + "/")).build());
+        send(httpClient, json(baseUrl + "/users").POST(HttpRequest.BodyPublishers.ofString(USER_JSON)).build());
+        String session = send(httpClient, json(baseUrl + "/session").POST(HttpRequest.BodyPublishers.ofString(USER_JSON)).build());
+        String token = session.replaceAll(".*\"token\"\\s*:\\s*\"([^\"]+)\".*", "$1");
+        send(httpClient, HttpRequest.newBuilder(URI.create(baseUrl + "/users")).header("Auth-Token", token).build());
+        // a rejected request, which goes through the error handling
+        send(httpClient, HttpRequest.newBuilder(URI.create(baseUrl + "/users")).header("Auth-Token", "invalid").build());
+    }
+
+    private HttpRequest.Builder json(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).header("Content-Type", "application/json");
+    }
+
+    private String send(HttpClient httpClient, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        log.info("Training request {} {} answered with {}", request.method(), request.uri().getPath(), response.statusCode());
+        return response.body();
+    }
+}
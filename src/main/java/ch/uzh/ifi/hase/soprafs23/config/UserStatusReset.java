@@ -0,0 +1,44 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * User Status Reset
+ * Sets all users OFFLINE at startup. The PresenceRegistry only knows the
+ * users that logged in since the start, users stored as ONLINE by a previous
+ * run of a persistent database would never expire and stay ONLINE. Runs once
+ * all beans are created, before the web server accepts the first request,
+ * also with the lazy initialization of the faststart profile.
+ */
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "user.status.reset-on-startup", havingValue = "true")
+public class UserStatusReset implements SmartInitializingSingleton {
+
+    private final Logger log = LoggerFactory.getLogger(UserStatusReset.class);
+
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserStatusReset(@Qualifier("userRepository") UserRepository userRepository,
+                           PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Integer reset = transactionTemplate.execute(transaction -> userRepository.updateAllStatuses(UserStatus.OFFLINE));
+        log.info("Set {} users of the previous run offline", reset);
+    }
+}
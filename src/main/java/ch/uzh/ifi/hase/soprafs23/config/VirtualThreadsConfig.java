@@ -0,0 +1,37 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual Threads Configuration
+ * Opt-in mode serving every request, and every asynchronous request such as
+ * a streamed user listing, on its own virtual thread instead of a thread of
+ * the bounded Tomcat pool. Requests blocking on the database then no longer
+ * hold on to a platform thread, so the number of concurrent requests is
+ * bounded by the connection limit of Tomcat rather than by its thread pool.
+ * Password hashing stays on its own pool of platform threads, see
+ * PasswordEncoderConfig. The property matches the one of Spring Boot 3.2,
+ * which supports virtual threads out of the box.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -0,0 +1,40 @@
+package ch.uzh.ifi.hase.soprafs23.controller;
+
+import ch.uzh.ifi.hase.soprafs23.rest.dto.CacheStatisticsGetDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.mapper.DTOMapper;
+import ch.uzh.ifi.hase.soprafs23.service.AuthService;
+import org.hibernate.SessionFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Statistics Controller
+ * Exposes the hit and miss counts of the Hibernate caches to authenticated
+ * users.
+ */
+@RestController
+public class StatisticsController {
+
+    private final AuthService authService;
+    private final SessionFactory sessionFactory;
+
+    StatisticsController(AuthService authService, EntityManagerFactory entityManagerFactory) {
+        this.authService = authService;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @GetMapping("/statistics/cache")
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public CacheStatisticsGetDTO getCacheStatistics(@RequestHeader("Auth-Token") String token) {
+        authService.authUser(token);
+
+        return DTOMapper.INSTANCE.convertStatisticsToCacheStatisticsGetDTO(sessionFactory.getStatistics());
+    }
+}
@@ -3,19 +3,40 @@ package ch.uzh.ifi.hase.soprafs23.controller;
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.Session;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
 import ch.uzh.ifi.hase.soprafs23.rest.dto.*;
 import ch.uzh.ifi.hase.soprafs23.rest.mapper.DTOMapper;
 import ch.uzh.ifi.hase.soprafs23.service.AuthService;
+import ch.uzh.ifi.hase.soprafs23.service.LoginRateLimiter;
+import ch.uzh.ifi.hase.soprafs23.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs23.service.UserEventHub;
 import ch.uzh.ifi.hase.soprafs23.service.UserService;
+import ch.uzh.ifi.hase.soprafs23.service.UsernameIndex;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * User Controller
@@ -27,26 +48,165 @@ import java.util.List;
 @RestController
 public class UserController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final UserService userService;
     private final AuthService authService;
+    private final PresenceRegistry presenceRegistry;
+    private final UserEventHub userEventHub;
+    private final LoginRateLimiter loginRateLimiter;
+    private final UsernameIndex usernameIndex;
+    private final ObjectMapper objectMapper;
 
-    UserController(UserService userService, AuthService authService) {
+    UserController(UserService userService, AuthService authService, PresenceRegistry presenceRegistry,
+                   UserEventHub userEventHub, LoginRateLimiter loginRateLimiter, UsernameIndex usernameIndex,
+                   ObjectMapper objectMapper) {
         this.userService = userService;
         this.authService = authService;
+        this.presenceRegistry = presenceRegistry;
+        this.userEventHub = userEventHub;
+        this.loginRateLimiter = loginRateLimiter;
+        this.usernameIndex = usernameIndex;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * The ETag of the list is checked before any user is loaded, an unchanged
+     * list is answered with 304 NOT_MODIFIED without loading or mapping it.
+     */
     @GetMapping("/users")
-    @ResponseStatus(HttpStatus.OK)
-    @ResponseBody
-    public List<UserGetDTO> getAllUsers(@RequestHeader("Auth-Token") String token) {
+    public ResponseEntity<List<UserGetDTO>> getAllUsers(@RequestHeader("Auth-Token") String token, WebRequest request) {
+        authService.authUser(token);
+        Optional<String> version = userService.getUsersVersion();
+        if (version.isPresent() && request.checkNotModified(version.get())) {
+            return null;
+        }
+
+        List<UserSummary> users = userService.getUserSummaries();
+        List<UserGetDTO> userGetDTOs = new ArrayList<>();
+
+        for (UserSummary user : users) {
+            userGetDTOs.add(DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(user));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        version.ifPresent(response::eTag);
+        return response.body(userGetDTOs);
+    }
+
+    @GetMapping(value = "/users", params = "limit")
+    public ResponseEntity<List<UserGetDTO>> getUsersPage(@RequestHeader("Auth-Token") String token,
+                                                         @RequestParam("limit") int limit,
+                                                         @RequestParam(value = "after", defaultValue = "0") long after) {
         authService.authUser(token);
-        List<User> users = userService.getUsers();
+        List<UserSummary> users = userService.getUsersAfter(after, limit);
         List<UserGetDTO> userGetDTOs = new ArrayList<>();
 
-        for (User user : users) {
-            userGetDTOs.add(DTOMapper.INSTANCE.convertEntityToUserGetDTO(user));
+        for (UserSummary user : users) {
+            userGetDTOs.add(DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(user));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(users.get(users.size() - 1).getId()));
+        }
+        return response.body(userGetDTOs);
+    }
+
+    /**
+     * Loads all requested users with a single query. Every id gets an item,
+     * in the order of the request, with the status 404 NOT_FOUND if there is
+     * no such user, such that a missing user does not fail the whole batch.
+     * The limit applies to the ids as requested, repeated ids included, since
+     * each of them gets an item.
+     */
+    @GetMapping(value = "/users", params = "ids")
+    public List<UserBatchGetDTO> getUsersByIds(@RequestHeader("Auth-Token") String token,
+                                               @RequestParam("ids") List<Long> ids) {
+        authService.authUser(token);
+        if (ids.size() > UserService.MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("The number of ids must be between 1 and %d.", UserService.MAX_PAGE_SIZE));
+        }
+        Map<Long, UserSummary> users = userService.getUserSummariesByIds(new LinkedHashSet<>(ids));
+        List<UserBatchGetDTO> userBatchGetDTOs = new ArrayList<>(ids.size());
+
+        for (long id : ids) {
+            UserBatchGetDTO userBatchGetDTO = new UserBatchGetDTO();
+            userBatchGetDTO.setId(id);
+            UserSummary user = users.get(id);
+            if (user != null) {
+                userBatchGetDTO.setStatus(HttpStatus.OK.value());
+                userBatchGetDTO.setUser(DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(user));
+            }
+            else {
+                userBatchGetDTO.setStatus(HttpStatus.NOT_FOUND.value());
+                userBatchGetDTO.setMessage(String.format("No user found with id %d.", id));
+            }
+            userBatchGetDTOs.add(userBatchGetDTO);
+        }
+        return userBatchGetDTOs;
+    }
+
+    @GetMapping(value = "/users", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestHeader("Auth-Token") String token) {
+        authService.authUser(token);
+
+        // the writer must not flush after every user, the generator buffers the output
+        ObjectWriter writer = objectMapper.writerFor(UserGetDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = writer.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                userService.streamUsers(user -> writeValue(writer, generator, DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(user)));
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/users/online")
+    public ResponseEntity<OnlineUsersGetDTO> getOnlineUsers(@RequestHeader("Auth-Token") String token,
+                                                            @RequestParam(value = "limit", defaultValue = "100") int limit,
+                                                            @RequestParam(value = "after", defaultValue = "0") long after) {
+        authService.authUser(token);
+        List<Long> userids = presenceRegistry.getOnlineUserIds(after, limit);
+
+        OnlineUsersGetDTO onlineUsersGetDTO = new OnlineUsersGetDTO();
+        onlineUsersGetDTO.setCount(presenceRegistry.getOnlineCount());
+        onlineUsersGetDTO.setUserids(userids);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (userids.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(userids.get(userids.size() - 1)));
+        }
+        return response.body(onlineUsersGetDTO);
+    }
+
+    /**
+     * Served from the UsernameIndex, the users are not loaded.
+     */
+    @GetMapping("/users/search")
+    public List<UserSearchGetDTO> searchUsers(@RequestHeader("Auth-Token") String token,
+                                              @RequestParam("prefix") String prefix,
+                                              @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        authService.authUser(token);
+        List<UserSearchGetDTO> userSearchGetDTOs = new ArrayList<>();
+
+        for (Map.Entry<String, Long> match : usernameIndex.search(prefix, limit)) {
+            UserSearchGetDTO userSearchGetDTO = new UserSearchGetDTO();
+            userSearchGetDTO.setId(match.getValue());
+            userSearchGetDTO.setUsername(match.getKey());
+            userSearchGetDTOs.add(userSearchGetDTO);
         }
-        return userGetDTOs;
+        return userSearchGetDTOs;
+    }
+
+    @GetMapping(value = "/users/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getUserEvents(@RequestHeader("Auth-Token") String token) {
+        authService.authUser(token);
+
+        return userEventHub.subscribe();
     }
 
     @PostMapping("/users")
@@ -61,14 +221,18 @@ public class UserController {
     }
 
     @GetMapping("/users/{id}")
-    @ResponseStatus(HttpStatus.OK)
-    @ResponseBody
-    public UserGetDTO getUser(@PathVariable("id") long id, @RequestHeader("Auth-Token") String token) {
+    public ResponseEntity<UserGetDTO> getUser(@PathVariable("id") long id, @RequestHeader("Auth-Token") String token,
+                                              WebRequest request) {
         authService.authUser(token);
 
-        User user = userService.getUserById(id);
+        UserSummary user = userService.getUserSummaryById(id);
+        // the status may still be pending, hence it is part of the ETag next to the version
+        String etag = user.getVersion() + "-" + user.getStatus();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
 
-        return DTOMapper.INSTANCE.convertEntityToUserGetDTO(user);
+        return ResponseEntity.ok().eTag(etag).body(DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(user));
     }
 
     @PutMapping("/users/{id}")
@@ -79,21 +243,25 @@ public class UserController {
 
         User userInput = DTOMapper.INSTANCE.convertUserPutDTOtoEntity(userPutDTO, id);
 
-        User updatedUser = userService.updateUser(userInput, id);
+        UserSummary updatedUser = userService.updateUser(userInput, id);
 
-        return DTOMapper.INSTANCE.convertEntityToUserGetDTO(updatedUser);
+        return DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(updatedUser);
     }
 
     @PostMapping("/session")
     @ResponseStatus(HttpStatus.OK)
     @ResponseBody
-    public SessionGetDTO login(@Validated @RequestBody SessionPostDTO sessionPostDTO) {
+    public CompletableFuture<SessionGetDTO> login(@Validated @RequestBody SessionPostDTO sessionPostDTO,
+                                                  HttpServletRequest request) {
+        // rejects attempts over the quota before the password is hashed
+        loginRateLimiter.acquire(sessionPostDTO.getUsername(), request.getRemoteAddr());
         Session session = DTOMapper.INSTANCE.convertSessionPostDTOtoEntity(sessionPostDTO);
 
-        Session successfulSession = authService.login(session);
-        userService.changeStatus(successfulSession.getUserid(), UserStatus.ONLINE);
-
-        return DTOMapper.INSTANCE.convertEntityToSessionGetDTO(successfulSession);
+        // the request thread is released while the password is hashed, the login completes on the task executor
+        return authService.login(session).thenApply(successfulSession -> {
+            userService.changeStatus(successfulSession.getUserid(), UserStatus.ONLINE);
+            return DTOMapper.INSTANCE.convertEntityToSessionGetDTO(successfulSession);
+        });
     }
 
     @DeleteMapping("/session")
@@ -105,6 +273,15 @@ public class UserController {
         userService.changeStatus(userid, UserStatus.OFFLINE);
     }
 
+    private void writeValue(ObjectWriter writer, JsonGenerator generator, Object value) {
+        try {
+            writer.writeValue(generator, value);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<String> handleValidationException(MethodArgumentNotValidException exception) {
         return new ResponseEntity<>(exception.getMessage(), HttpStatus.BAD_REQUEST);
@@ -0,0 +1,142 @@
+package ch.uzh.ifi.hase.soprafs23.controller;
+
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.UserImportResultDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.UserPostDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.mapper.DTOMapper;
+import ch.uzh.ifi.hase.soprafs23.service.AuthService;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportResult;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User Import Controller
+ * Imports users from newline delimited JSON or CSV with a header row, both
+ * with the fields of UserPostDTO. The records are read and imported in
+ * batches while the result of every record is streamed back as newline
+ * delimited JSON, hence the import is neither limited by memory nor does the
+ * client have to wait for the last record to see the first results.
+ */
+@RestController
+public class UserImportController {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+
+    private final AuthService authService;
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    UserImportController(AuthService authService, UserImportService userImportService, ObjectMapper objectMapper,
+                         @Value("${user.import.batch-size:500}") int batchSize) {
+        this.authService = authService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    @PostMapping(value = "/users/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsersFromJson(@RequestHeader("Auth-Token") String token,
+                                                                     InputStream body) throws IOException {
+        authService.authUser(token);
+
+        return importUsers(objectMapper.readerFor(UserPostDTO.class).readValues(body));
+    }
+
+    @PostMapping(value = "/users/import", consumes = TEXT_CSV_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importUsersFromCsv(@RequestHeader("Auth-Token") String token,
+                                                                    InputStream body) throws IOException {
+        authService.authUser(token);
+
+        return importUsers(CSV_MAPPER.readerFor(UserPostDTO.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(body));
+    }
+
+    private ResponseEntity<StreamingResponseBody> importUsers(MappingIterator<UserPostDTO> records) {
+        // every result is on its own line, the output is flushed once per batch
+        ObjectWriter writer = objectMapper.writerFor(UserImportResultDTO.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (records; JsonGenerator generator = writer.createGenerator(outputStream)) {
+                List<User> batch = new ArrayList<>(batchSize);
+                long index = 0;
+
+                while (true) {
+                    UserPostDTO record;
+                    try {
+                        if (!records.hasNextValue()) {
+                            break;
+                        }
+                        record = records.nextValue();
+                    }
+                    catch (IOException | RuntimeJsonMappingException e) {
+                        // the reader cannot recover from a malformed record, the remaining records are skipped
+                        index = writeResults(writer, generator, importBatch(batch), index);
+                        writeResult(writer, generator, UserImportResult.rejected(null, HttpStatus.BAD_REQUEST,
+                                "The record is malformed, the remaining records have not been imported."), index + 1);
+                        break;
+                    }
+
+                    batch.add(DTOMapper.INSTANCE.convertUserPostDTOtoEntity(record));
+                    if (batch.size() == batchSize) {
+                        index = writeResults(writer, generator, importBatch(batch), index);
+                        generator.flush();
+                    }
+                }
+
+                writeResults(writer, generator, importBatch(batch), index);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private List<UserImportResult> importBatch(List<User> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        // the batch list is reused for the next records
+        List<UserImportResult> results = userImportService.importUsers(new ArrayList<>(batch));
+        batch.clear();
+        return results;
+    }
+
+    private long writeResults(ObjectWriter writer, JsonGenerator generator, List<UserImportResult> results,
+                              long index) throws IOException {
+        for (UserImportResult result : results) {
+            writeResult(writer, generator, result, ++index);
+        }
+        return index;
+    }
+
+    private void writeResult(ObjectWriter writer, JsonGenerator generator, UserImportResult result,
+                             long index) throws IOException {
+        writer.writeValue(generator, DTOMapper.INSTANCE.convertUserImportResultToUserImportResultDTO(result, index));
+        generator.writeRaw('\n');
+    }
+}
@@ -1,6 +1,14 @@
 package ch.uzh.ifi.hase.soprafs23.entity;
 
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -16,24 +24,48 @@ import java.util.Date;
  * - nullable = false -> this cannot be left empty
  * - unique = true -> this value must be unqiue across the database -> composes
  * the primary key
+ * Updates only write the changed columns, such that status changes of many
+ * users can be batched into the same statement. The ids are allocated from
+ * the sequence in blocks, such that batch inserts need no round trip per
+ * user, see UserIdGenerator.
+ * Users are kept in the second-level cache, the username is a mutable natural
+ * id such that lookups by username are served from the cache as well.
+ * The unique constraints of the username and the token are named, such that
+ * violations of them can be told apart from other integrity violations and
+ * schema updates of a persistent database recognize them. The index of the
+ * token constraint serves the lookups by token.
+ * The version is incremented by every update and serves as ETag of the user.
  */
 @Entity
-@Table(name = "USER")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@NaturalIdCache(region = "user-by-username")
+@Table(name = "USER", uniqueConstraints = {
+        @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = User.TOKEN_CONSTRAINT, columnNames = "token")})
 public class User implements Serializable {
 
+    public static final String USERNAME_CONSTRAINT = "UK_USER_USERNAME";
+
+    public static final String TOKEN_CONSTRAINT = "UK_USER_TOKEN";
+
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "user_sequence")
+    @GenericGenerator(name = "user_sequence", strategy = "ch.uzh.ifi.hase.soprafs23.entity.UserIdGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "user_sequence"))
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @NaturalId(mutable = true)
+    @Column(nullable = false)
     private String username;
 
     @Column(nullable = false)
     private String password;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String token;
 
     @Column(nullable = false)
@@ -45,6 +77,10 @@ public class User implements Serializable {
     @Column(nullable = false)
     private LocalDate creationDate;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     public Long getId() {
         return id;
     }
@@ -100,4 +136,8 @@ public class User implements Serializable {
     public void setCreationDate(LocalDate creationDate) {
         this.creationDate = creationDate;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,40 @@
+package ch.uzh.ifi.hase.soprafs23.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * User Id Generator
+ * Sequence generator whose allocation size is taken from the user.id.allocation_size
+ * setting, e.g. spring.jpa.properties.user.id.allocation_size, instead of being fixed
+ * in the mapping. Every sequence call reserves a block of that many ids,
+ * which are handed out with the pooled-lo optimizer: the sequence value is
+ * the first id of the block, so other writers calling the sequence never
+ * collide with ids handed out by Hibernate.
+ */
+public class UserIdGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "user.id.allocation_size";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_ALLOCATION_SIZE);
+        if (allocationSize < 1) {
+            throw new MappingException("The user id allocation size must be positive.");
+        }
+
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
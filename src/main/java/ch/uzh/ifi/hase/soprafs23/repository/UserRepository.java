@@ -1,14 +1,62 @@
 package ch.uzh.ifi.hase.soprafs23.repository;
 
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository("userRepository")
-public interface UserRepository extends JpaRepository<User, Long> {
-    User findByUsername(String username);
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    String SELECT_SUMMARY = "select new ch.uzh.ifi.hase.soprafs23.repository.UserSummary("
+            + "u.id, u.username, u.status, u.birthday, u.creationDate, u.version) from User u ";
+
+    // not cached, every status flush would invalidate the cached result, the TokenStore caches the tokens instead
     Optional<User> findByToken(String token);
     Optional<User> findById(Long id);
+
+    @Query("select u.username from User u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query(SELECT_SUMMARY + "order by u.id")
+    List<UserSummary> findAllSummaries();
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new ch.uzh.ifi.hase.soprafs23.repository.UsersVersion(count(u), max(u.id), sum(u.version)) from User u")
+    UsersVersion findUsersVersion();
+
+    @Query(SELECT_SUMMARY + "where u.id = :id")
+    Optional<UserSummary> findSummaryById(@Param("id") long id);
+
+    @Query(SELECT_SUMMARY + "where u.id in :ids")
+    List<UserSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_SUMMARY + "where u.id > :after order by u.id")
+    List<UserSummary> findSummariesAfter(@Param("after") long after, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_SUMMARY + "order by u.id")
+    Stream<UserSummary> streamAllSummaries();
+
+    /**
+     * Sets the status of every user that has another one. Bulk updates clear
+     * the user regions of the second-level cache, hence this is only meant
+     * to run at startup, see UserStatusReset.
+     */
+    @Modifying
+    @Query("update User u set u.status = :status, u.version = u.version + 1 where u.status <> :status")
+    int updateAllStatuses(@Param("status") UserStatus status);
 }
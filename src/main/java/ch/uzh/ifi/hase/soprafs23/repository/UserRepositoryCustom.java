@@ -0,0 +1,24 @@
+package ch.uzh.ifi.hase.soprafs23.repository;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+
+import java.util.Collection;
+
+public interface UserRepositoryCustom {
+    User findByUsername(String username);
+
+    /**
+     * Sets the status of all given users in one JDBC batch, without loading
+     * them. Increments the version like any other update, users that already
+     * have the status are left untouched. Returns the number of updated users.
+     */
+    int updateStatuses(UserStatus status, Collection<Long> ids);
+
+    /**
+     * Writes only the password in its own transaction, such that an upgraded
+     * hash neither overwrites nor conflicts with concurrent changes of the
+     * user. Evicts only this user from the second-level cache.
+     */
+    int updatePassword(long id, String password);
+}
@@ -0,0 +1,96 @@
+package ch.uzh.ifi.hase.soprafs23.repository;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * User Repository Implementation
+ * Looks up users by their natural id, which is resolved through the natural id
+ * cache and the second-level cache before falling back to a query.
+ * Writes status and password changes through JDBC instead of a bulk JPQL update, which
+ * would clear the whole user region and natural id region of the
+ * second-level cache. Only the written users are evicted instead, once the
+ * transaction is completed, such that no concurrent load puts the previous
+ * state back into the cache.
+ */
+@Transactional(readOnly = true)
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final String UPDATE_STATUS =
+            "update \"user\" set status = ?, version = version + 1 where id = ? and status <> ?";
+
+    private static final String UPDATE_PASSWORD = "update \"user\" set password = ? where id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public User findByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .load(username);
+    }
+
+    @Override
+    @Transactional
+    public int updateStatuses(UserStatus status, Collection<Long> ids) {
+        List<Long> userids = new ArrayList<>(ids);
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS, userids, userids.size(), (statement, userid) -> {
+            statement.setInt(1, status.ordinal());
+            statement.setLong(2, userid);
+            statement.setInt(3, status.ordinal());
+        });
+
+        Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class);
+        afterCompletion(() -> {
+            userids.forEach(userid -> cache.evict(User.class, userid));
+            // the cached UsersVersion sums up the versions, it is the only cached query result
+            cache.evictDefaultQueryRegion();
+        });
+
+        int updated = 0;
+        for (int[] batchCounts : counts) {
+            for (int count : batchCounts) {
+                updated += Math.max(count, 0);
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int updatePassword(long id, String password) {
+        int updated = jdbcTemplate.update(UPDATE_PASSWORD, password, id);
+        Cache cache = entityManager.getEntityManagerFactory().getCache().unwrap(Cache.class);
+        afterCompletion(() -> cache.evict(User.class, id));
+        return updated;
+    }
+
+    private static void afterCompletion(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package ch.uzh.ifi.hase.soprafs23.repository;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+
+import java.time.LocalDate;
+
+/**
+ * User Summary
+ * Read-only projection of the user containing only the publicly visible
+ * fields. It is filled by constructor expressions in the UserRepository,
+ * hence listing users neither loads the password and token nor creates
+ * managed entities.
+ */
+public class UserSummary {
+
+    private final Long id;
+    private final String username;
+    private final UserStatus status;
+    private final LocalDate birthday;
+    private final LocalDate creationDate;
+    private final long version;
+
+    public UserSummary(Long id, String username, UserStatus status, LocalDate birthday, LocalDate creationDate,
+                       long version) {
+        this.id = id;
+        this.username = username;
+        this.status = status;
+        this.birthday = birthday;
+        this.creationDate = creationDate;
+        this.version = version;
+    }
+
+    public UserSummary withStatus(UserStatus status) {
+        return new UserSummary(id, username, status, birthday, creationDate, version);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public UserStatus getStatus() {
+        return status;
+    }
+
+    public LocalDate getBirthday() {
+        return birthday;
+    }
+
+    public LocalDate getCreationDate() {
+        return creationDate;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
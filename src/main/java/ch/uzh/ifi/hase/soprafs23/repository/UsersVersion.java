@@ -0,0 +1,26 @@
+package ch.uzh.ifi.hase.soprafs23.repository;
+
+/**
+ * Users Version
+ * Aggregate over all users that changes whenever a user is created, deleted
+ * or updated: the number of users, the highest id and the sum of the
+ * versions. New users always get an id above the highest one, deletions
+ * lower the count and updates raise the sum. Computing it loads no user, and
+ * the query is cached until the next write to the user table.
+ */
+public class UsersVersion {
+
+    private final long count;
+    private final long maxId;
+    private final long versionSum;
+
+    public UsersVersion(Long count, Long maxId, Long versionSum) {
+        this.count = count;
+        this.maxId = maxId == null ? 0 : maxId;
+        this.versionSum = versionSum == null ? 0 : versionSum;
+    }
+
+    public String getTag() {
+        return count + "-" + maxId + "-" + versionSum;
+    }
+}
@@ -0,0 +1,67 @@
+package ch.uzh.ifi.hase.soprafs23.rest.dto;
+
+public class CacheStatisticsGetDTO {
+    private long secondLevelCacheHitCount;
+    private long secondLevelCacheMissCount;
+    private long secondLevelCachePutCount;
+    private long naturalIdCacheHitCount;
+    private long naturalIdCacheMissCount;
+    private long queryCacheHitCount;
+    private long queryCacheMissCount;
+
+    public long getSecondLevelCacheHitCount() {
+        return secondLevelCacheHitCount;
+    }
+
+    public void setSecondLevelCacheHitCount(long secondLevelCacheHitCount) {
+        this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+    }
+
+    public long getSecondLevelCacheMissCount() {
+        return secondLevelCacheMissCount;
+    }
+
+    public void setSecondLevelCacheMissCount(long secondLevelCacheMissCount) {
+        this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+    }
+
+    public long getSecondLevelCachePutCount() {
+        return secondLevelCachePutCount;
+    }
+
+    public void setSecondLevelCachePutCount(long secondLevelCachePutCount) {
+        this.secondLevelCachePutCount = secondLevelCachePutCount;
+    }
+
+    public long getNaturalIdCacheHitCount() {
+        return naturalIdCacheHitCount;
+    }
+
+    public void setNaturalIdCacheHitCount(long naturalIdCacheHitCount) {
+        this.naturalIdCacheHitCount = naturalIdCacheHitCount;
+    }
+
+    public long getNaturalIdCacheMissCount() {
+        return naturalIdCacheMissCount;
+    }
+
+    public void setNaturalIdCacheMissCount(long naturalIdCacheMissCount) {
+        this.naturalIdCacheMissCount = naturalIdCacheMissCount;
+    }
+
+    public long getQueryCacheHitCount() {
+        return queryCacheHitCount;
+    }
+
+    public void setQueryCacheHitCount(long queryCacheHitCount) {
+        this.queryCacheHitCount = queryCacheHitCount;
+    }
+
+    public long getQueryCacheMissCount() {
+        return queryCacheMissCount;
+    }
+
+    public void setQueryCacheMissCount(long queryCacheMissCount) {
+        this.queryCacheMissCount = queryCacheMissCount;
+    }
+}
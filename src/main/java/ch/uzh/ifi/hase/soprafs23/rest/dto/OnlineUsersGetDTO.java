@@ -0,0 +1,24 @@
+package ch.uzh.ifi.hase.soprafs23.rest.dto;
+
+import java.util.List;
+
+public class OnlineUsersGetDTO {
+    private int count;
+    private List<Long> userids;
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<Long> getUserids() {
+        return userids;
+    }
+
+    public void setUserids(List<Long> userids) {
+        this.userids = userids;
+    }
+}
@@ -2,7 +2,12 @@ package ch.uzh.ifi.hase.soprafs23.rest.mapper;
 
 import ch.uzh.ifi.hase.soprafs23.entity.Session;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
 import ch.uzh.ifi.hase.soprafs23.rest.dto.*;
+import ch.uzh.ifi.hase.soprafs23.service.DatabaseBackup;
+import ch.uzh.ifi.hase.soprafs23.service.UserChangedEvent;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportResult;
+import org.hibernate.stat.Statistics;
 import org.mapstruct.*;
 import org.mapstruct.factory.Mappers;
 
@@ -16,8 +21,10 @@ import org.mapstruct.factory.Mappers;
  * Additional mappers can be defined for new entities.
  * Always created one mapper for getting information (GET) and one mapper for
  * creating information (POST).
+ * The mappings of the user and session endpoints are timed by TimedDTOMapper.
  */
 @Mapper
+@DecoratedWith(TimedDTOMapper.class)
 public interface DTOMapper {
 
     DTOMapper INSTANCE = Mappers.getMapper(DTOMapper.class);
@@ -29,6 +36,13 @@ public interface DTOMapper {
     @Mapping(source = "creationDate", target = "creationDate", dateFormat = "dd.MM.yyyy")
     UserGetDTO convertEntityToUserGetDTO(User user);
 
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "username", target = "username")
+    @Mapping(source = "status", target = "status")
+    @Mapping(source = "birthday", target = "birthday", dateFormat = "dd.MM.yyyy")
+    @Mapping(source = "creationDate", target = "creationDate", dateFormat = "dd.MM.yyyy")
+    UserGetDTO convertUserSummaryToUserGetDTO(UserSummary userSummary);
+
     @Mapping(source = "username", target = "username")
     @Mapping(source = "password", target = "password")
     User convertUserPostDTOtoEntity(UserPostDTO userPostDTO);
@@ -45,4 +59,34 @@ public interface DTOMapper {
     @Mapping(source = "username", target = "username")
     @Mapping(source = "userid", target = "userid")
     SessionGetDTO convertEntityToSessionGetDTO(Session session);
+
+    @Mapping(source = "id", target = "id")
+    @Mapping(source = "username", target = "username")
+    @Mapping(source = "status", target = "status")
+    @Mapping(source = "birthday", target = "birthday")
+    UserEventDTO convertUserChangedEventToUserEventDTO(UserChangedEvent event);
+
+    @Mapping(source = "index", target = "index")
+    @Mapping(source = "result.username", target = "username")
+    @Mapping(target = "status", expression = "java(result.getStatus().value())")
+    @Mapping(source = "result.id", target = "id")
+    @Mapping(source = "result.message", target = "message")
+    UserImportResultDTO convertUserImportResultToUserImportResultDTO(UserImportResult result, long index);
+
+    @Mapping(source = "secondLevelCacheHitCount", target = "secondLevelCacheHitCount")
+    @Mapping(source = "secondLevelCacheMissCount", target = "secondLevelCacheMissCount")
+    @Mapping(source = "secondLevelCachePutCount", target = "secondLevelCachePutCount")
+    @Mapping(source = "naturalIdCacheHitCount", target = "naturalIdCacheHitCount")
+    @Mapping(source = "naturalIdCacheMissCount", target = "naturalIdCacheMissCount")
+    @Mapping(source = "queryCacheHitCount", target = "queryCacheHitCount")
+    @Mapping(source = "queryCacheMissCount", target = "queryCacheMissCount")
+    CacheStatisticsGetDTO convertStatisticsToCacheStatisticsGetDTO(Statistics statistics);
+
+    @Mapping(source = "name", target = "name")
+    @Mapping(source = "state", target = "state")
+    @Mapping(source = "startedAt", target = "startedAt")
+    @Mapping(source = "completedAt", target = "completedAt")
+    @Mapping(source = "size", target = "size")
+    @Mapping(source = "message", target = "message")
+    DatabaseBackupGetDTO convertDatabaseBackupToDatabaseBackupGetDTO(DatabaseBackup backup);
 }
@@ -0,0 +1,70 @@
+package ch.uzh.ifi.hase.soprafs23.rest.mapper;
+
+import ch.uzh.ifi.hase.soprafs23.entity.Session;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.*;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timed DTOMapper
+ * Decorates the generated DTOMapper and records the mappings of the user and
+ * session endpoints in the user.mapping timer, tagged with the method. The
+ * mapper is a static singleton, hence the timers are registered in the
+ * global registry, to which Spring Boot adds its own registry.
+ */
+public abstract class TimedDTOMapper implements DTOMapper {
+
+    private static final String TIMER_NAME = "user.mapping";
+
+    private final DTOMapper delegate;
+
+    private final Timer entityToUserGetDTO = timer("convertEntityToUserGetDTO");
+    private final Timer userSummaryToUserGetDTO = timer("convertUserSummaryToUserGetDTO");
+    private final Timer userPostDTOtoEntity = timer("convertUserPostDTOtoEntity");
+    private final Timer userPutDTOtoEntity = timer("convertUserPutDTOtoEntity");
+    private final Timer sessionPostDTOtoEntity = timer("convertSessionPostDTOtoEntity");
+    private final Timer entityToSessionGetDTO = timer("convertEntityToSessionGetDTO");
+
+    protected TimedDTOMapper(DTOMapper delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public UserGetDTO convertEntityToUserGetDTO(User user) {
+        return entityToUserGetDTO.record(() -> delegate.convertEntityToUserGetDTO(user));
+    }
+
+    @Override
+    public UserGetDTO convertUserSummaryToUserGetDTO(UserSummary userSummary) {
+        return userSummaryToUserGetDTO.record(() -> delegate.convertUserSummaryToUserGetDTO(userSummary));
+    }
+
+    @Override
+    public User convertUserPostDTOtoEntity(UserPostDTO userPostDTO) {
+        return userPostDTOtoEntity.record(() -> delegate.convertUserPostDTOtoEntity(userPostDTO));
+    }
+
+    @Override
+    public User convertUserPutDTOtoEntity(UserPutDTO user, long id) {
+        return userPutDTOtoEntity.record(() -> delegate.convertUserPutDTOtoEntity(user, id));
+    }
+
+    @Override
+    public Session convertSessionPostDTOtoEntity(SessionPostDTO sessionPostDTO) {
+        return sessionPostDTOtoEntity.record(() -> delegate.convertSessionPostDTOtoEntity(sessionPostDTO));
+    }
+
+    @Override
+    public SessionGetDTO convertEntityToSessionGetDTO(Session session) {
+        return entityToSessionGetDTO.record(() -> delegate.convertEntityToSessionGetDTO(session));
+    }
+
+    private static Timer timer(String method) {
+        return Timer.builder(TIMER_NAME)
+                .description("Time spent mapping between entities and DTOs")
+                .tag("method", method)
+                .register(Metrics.globalRegistry);
+    }
+}
@@ -3,28 +3,60 @@ package ch.uzh.ifi.hase.soprafs23.service;
 import ch.uzh.ifi.hase.soprafs23.entity.Session;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
 import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.security.OffloadingPasswordEncoder;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
+/**
+ * Auth Service
+ * Checks auth tokens and passwords. The checks are timed in the user.auth
+ * timer, tagged with the method, see MetricsConfig; the timer of a login
+ * stops once its future completes.
+ */
 @Service
+@Timed("user.auth")
 public class AuthService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TokenStore tokenStore;
+    private final PresenceRegistry presenceRegistry;
+    private final Executor executor;
 
     @Autowired
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, TokenStore tokenStore,
+                       PresenceRegistry presenceRegistry,
+                       @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executor) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenStore = tokenStore;
+        this.presenceRegistry = presenceRegistry;
+        this.executor = executor;
     }
 
     public void authUserForUserId(String inputToken, long userid) {
+        Optional<Long> storedUserId = tokenStore.findUserId(inputToken);
+        if (storedUserId.isPresent()) {
+            if (storedUserId.get() != userid) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+            }
+            presenceRegistry.heartbeat(userid);
+            return;
+        }
+        if (tokenStore.isAuthoritative()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+
         String token = userRepository
                 .findById(userid)
                 .map(user -> user.getToken())
@@ -33,43 +65,84 @@ public class AuthService {
         if (!token.equals(inputToken)) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
         }
+
+        tokenStore.put(token, userid);
+        presenceRegistry.heartbeat(userid);
     }
 
     public void authUser(String token) {
-        Set<String> allTokens = userRepository
-                .findAll()
-                .stream()
-                .map(user -> user.getToken())
-                .collect(Collectors.toSet());
-
-        if (!allTokens.contains(token)) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
-        }
+        long userid = findUserIdByToken(token)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        presenceRegistry.heartbeat(userid);
     }
 
-    public Session login(Session session) {
+    /**
+     * The password is checked on the hashing pool without blocking the
+     * caller. Everything after a hash, including the dependent stages of the
+     * caller, runs on the application task executor, such that the hashing
+     * threads only hash. An upgraded hash is written on its own, the loaded
+     * user is detached and may be outdated by then.
+     */
+    public CompletableFuture<Session> login(Session session) {
         User userByUserName = userRepository.findByUsername(session.getUsername());
-
-        if (!(userByUserName != null && isPasswordCorrect(userByUserName, session.getPassword()))) {
-            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (userByUserName == null) {
+            return CompletableFuture.failedFuture(new ResponseStatusException(HttpStatus.UNAUTHORIZED));
         }
 
-        return new Session(
-                userByUserName.getUsername(),
-                null,
-                userByUserName.getId(),
-                userByUserName.getToken()
-        );
+        return matchesAsync(session.getPassword(), userByUserName.getPassword())
+                .thenComposeAsync(matches -> {
+                    if (!matches) {
+                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+                    }
+                    if (!passwordEncoder.upgradeEncoding(userByUserName.getPassword())) {
+                        return CompletableFuture.completedFuture(userByUserName);
+                    }
+                    return encodeAsync(session.getPassword()).thenApplyAsync(encodedPassword -> {
+                        userRepository.updatePassword(userByUserName.getId(), encodedPassword);
+                        return userByUserName;
+                    }, executor);
+                }, executor)
+                .thenApply(user -> new Session(
+                        user.getUsername(),
+                        null,
+                        user.getId(),
+                        tokenStore.issue(user.getId(), user.getToken())
+                ));
     }
 
-    private boolean isPasswordCorrect(User user, String password) {
-        return passwordEncoder.matches(password, user.getPassword());
+    private CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedPassword) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            return ((OffloadingPasswordEncoder) passwordEncoder).matchesAsync(rawPassword, encodedPassword);
+        }
+        return CompletableFuture.completedFuture(passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private CompletableFuture<String> encodeAsync(String rawPassword) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            return ((OffloadingPasswordEncoder) passwordEncoder).encodeAsync(rawPassword);
+        }
+        return CompletableFuture.completedFuture(passwordEncoder.encode(rawPassword));
     }
 
     public long logout(String token) {
-        return userRepository
-                .findByToken(token)
-                .map(User::getId)
+        long userid = findUserIdByToken(token)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        tokenStore.remove(token);
+        return userid;
+    }
+
+    private Optional<Long> findUserIdByToken(String token) {
+        Optional<Long> storedUserId = tokenStore.findUserId(token);
+        if (storedUserId.isPresent() || tokenStore.isAuthoritative()) {
+            return storedUserId;
+        }
+
+        Optional<Long> userid = userRepository
+                .findByToken(token)
+                .map(User::getId);
+
+        userid.ifPresent(id -> tokenStore.put(token, id));
+        return userid;
     }
 }
@@ -0,0 +1,68 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import java.time.Instant;
+
+/**
+ * Database Backup
+ * State of a backup started by the DatabaseBackupService. A backup is
+ * RUNNING until the backup file is written, then COMPLETED with the size of
+ * the file or FAILED with the reason.
+ */
+public class DatabaseBackup {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String name;
+    private final State state;
+    private final Instant startedAt;
+    private final Instant completedAt;
+    private final Long size;
+    private final String message;
+
+    private DatabaseBackup(String name, State state, Instant startedAt, Instant completedAt, Long size, String message) {
+        this.name = name;
+        this.state = state;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.size = size;
+        this.message = message;
+    }
+
+    public static DatabaseBackup running(String name, Instant startedAt) {
+        return new DatabaseBackup(name, State.RUNNING, startedAt, null, null, null);
+    }
+
+    public DatabaseBackup completed(Instant completedAt, long size) {
+        return new DatabaseBackup(name, State.COMPLETED, startedAt, completedAt, size, null);
+    }
+
+    public DatabaseBackup failed(Instant completedAt, String message) {
+        return new DatabaseBackup(name, State.FAILED, startedAt, completedAt, null, message);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,65 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.rest.dto.DatabaseBackupGetDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.mapper.DTOMapper;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Database Backup Endpoint
+ * Actuator endpoint for the operators, not for the users of the API.
+ * POST /actuator/backups starts an online backup of the database and answers
+ * with 202 Accepted right away, GET /actuator/backups/{name} returns the
+ * state of the backup, which is polled until the backup is completed or
+ * failed. The endpoint is only exposed by the persistent profile, on the
+ * management port bound to localhost.
+ */
+@Component
+@WebEndpoint(id = "backups")
+public class DatabaseBackupEndpoint {
+
+    private final DatabaseBackupService databaseBackupService;
+
+    DatabaseBackupEndpoint(DatabaseBackupService databaseBackupService) {
+        this.databaseBackupService = databaseBackupService;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<DatabaseBackupGetDTO> startBackup() {
+        try {
+            return new WebEndpointResponse<>(
+                    DTOMapper.INSTANCE.convertDatabaseBackupToDatabaseBackupGetDTO(databaseBackupService.startBackup()),
+                    HttpStatus.ACCEPTED.value());
+        }
+        catch (ResponseStatusException e) {
+            return new WebEndpointResponse<>(e.getRawStatusCode());
+        }
+    }
+
+    @ReadOperation
+    public List<DatabaseBackupGetDTO> getBackups() {
+        return databaseBackupService.getBackups().stream()
+                .map(DTOMapper.INSTANCE::convertDatabaseBackupToDatabaseBackupGetDTO)
+                .collect(Collectors.toList());
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<DatabaseBackupGetDTO> getBackup(@Selector String name) {
+        try {
+            return new WebEndpointResponse<>(
+                    DTOMapper.INSTANCE.convertDatabaseBackupToDatabaseBackupGetDTO(databaseBackupService.getBackup(name)));
+        }
+        catch (ResponseStatusException e) {
+            return new WebEndpointResponse<>(e.getRawStatusCode());
+        }
+    }
+}
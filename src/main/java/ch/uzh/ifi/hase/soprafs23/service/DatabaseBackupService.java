@@ -0,0 +1,163 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Database Backup Service
+ * Takes online backups of a persistent H2 database with BACKUP TO, which
+ * copies the database file into a zip file while the database keeps serving
+ * reads and writes. The backups run one at a time on their own thread, such
+ * that the request starting a backup returns right away and polls for its
+ * state instead of holding a request thread and a connection for the whole
+ * copy. The states are kept in memory, the backup files themselves are
+ * found in the backup directory. Only the latest retention backups are kept,
+ * older backup files and states are deleted once a backup is done.
+ */
+@Service
+public class DatabaseBackupService implements DisposableBean {
+
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+            .withZone(ZoneOffset.UTC);
+    private static final Pattern BACKUP_FILE_NAME = Pattern.compile("backup-\\d{8}-\\d{6}-\\d{3}\\.zip");
+
+    private final Logger log = LoggerFactory.getLogger(DatabaseBackupService.class);
+
+    private final Map<String, DatabaseBackup> backups = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "database-backup"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path directory;
+    private final int retention;
+    private final Clock clock = Clock.systemUTC();
+
+    public DatabaseBackupService(JdbcTemplate jdbcTemplate,
+                                 @Value("${database.backup.directory:backups}") Path directory,
+                                 @Value("${database.backup.retention:5}") int retention) {
+        if (retention < 1) {
+            throw new IllegalArgumentException("At least one backup has to be retained.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = directory.toAbsolutePath();
+        this.retention = retention;
+    }
+
+    public DatabaseBackup startBackup() {
+        if (jdbcTemplate.queryForObject("select DATABASE_PATH()", String.class) == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "The database is kept in memory, only persistent databases can be backed up.");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A backup is already running.");
+        }
+
+        Instant startedAt = clock.instant();
+        DatabaseBackup backup = DatabaseBackup.running("backup-" + NAME_FORMAT.format(startedAt) + ".zip", startedAt);
+        backups.put(backup.getName(), backup);
+        executor.execute(() -> {
+            DatabaseBackup result = backup;
+            try {
+                result = runBackup(backup);
+                deleteOldBackups();
+            }
+            finally {
+                // a client polling for the final state may start the next backup right away
+                running.set(false);
+                backups.put(backup.getName(), result);
+            }
+        });
+        return backup;
+    }
+
+    public DatabaseBackup getBackup(String name) {
+        DatabaseBackup backup = backups.get(name);
+        if (backup == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("No backup found with name %s.", name));
+        }
+        return backup;
+    }
+
+    public List<DatabaseBackup> getBackups() {
+        return backups.values().stream()
+                .sorted(Comparator.comparing(DatabaseBackup::getName))
+                .collect(Collectors.toList());
+    }
+
+    private DatabaseBackup runBackup(DatabaseBackup backup) {
+        Path file = directory.resolve(backup.getName());
+        try {
+            Files.createDirectories(directory);
+            jdbcTemplate.execute("BACKUP TO '" + file.toString().replace("'", "''") + "'");
+            DatabaseBackup completed = backup.completed(clock.instant(), Files.size(file));
+            log.info("Backed up the database to {} ({} bytes) in {} ms", file, completed.getSize(),
+                    completed.getCompletedAt().toEpochMilli() - backup.getStartedAt().toEpochMilli());
+            return completed;
+        }
+        catch (DataAccessException e) {
+            log.error("Backup to {} failed", file, e);
+            return backup.failed(clock.instant(), e.getMostSpecificCause().getMessage());
+        }
+        catch (IOException e) {
+            log.error("Backup to {} failed", file, e);
+            return backup.failed(clock.instant(), e.getMessage());
+        }
+    }
+
+    /**
+     * The names start with the time of the backup, the latest backups are the
+     * ones sorting last by name.
+     */
+    private void deleteOldBackups() {
+        backups.keySet().stream()
+                .sorted(Comparator.reverseOrder())
+                .skip(retention)
+                .forEach(backups::remove);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> oldFiles = files
+                    .filter(file -> BACKUP_FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted(Comparator.comparing((Path file) -> file.getFileName().toString()).reversed())
+                    .skip(retention)
+                    .collect(Collectors.toList());
+            for (Path file : oldFiles) {
+                Files.deleteIfExists(file);
+                log.info("Deleted the old backup {}", file);
+            }
+        }
+        catch (IOException e) {
+            log.warn("Could not delete the old backups in {}", directory, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
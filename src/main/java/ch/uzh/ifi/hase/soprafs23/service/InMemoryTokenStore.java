@@ -0,0 +1,148 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-Memory Token Store
+ * Default TokenStore keeping tokens in a concurrent map. Every entry expires
+ * after a fixed time to live and the map never holds more than the configured
+ * number of tokens; once it is full, arbitrary entries are evicted to make
+ * room. Expired entries are removed lazily on lookup and by a periodic sweep.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.token-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTokenStore implements TokenStore {
+
+    private final Logger log = LoggerFactory.getLogger(InMemoryTokenStore.class);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public InMemoryTokenStore(@Value("${auth.token-store.max-size:100000}") int maxSize,
+                              @Value("${auth.token-store.ttl:1h}") Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    InMemoryTokenStore(int maxSize, Duration ttl, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The token store size must be positive.");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public void put(String token, long userid) {
+        entries.put(token, new Entry(userid, clock.millis() + ttlMillis));
+
+        if (entries.size() > maxSize) {
+            evictOverflow();
+        }
+    }
+
+    @Override
+    public Optional<Long> findUserId(String token) {
+        Entry entry = token == null ? null : entries.get(token);
+
+        if (entry == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (entry.isExpired(clock.millis())) {
+            if (entries.remove(token, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        return Optional.of(entry.userid);
+    }
+
+    @Override
+    public void remove(String token) {
+        if (token != null) {
+            entries.remove(token);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token-store.sweep-interval:60000}")
+    public void evictExpired() {
+        long now = clock.millis();
+        int evicted = 0;
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue().isExpired(now)) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+
+        evictions.add(evicted);
+        log.debug("Evicted {} expired tokens, {} tokens remain", evicted, entries.size());
+    }
+
+    private void evictOverflow() {
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static final class Entry {
+        private final long userid;
+        private final long expiresAt;
+
+        private Entry(long userid, long expiresAt) {
+            this.userid = userid;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Login Rate Limiter
+ * Limits the login attempts per username and per client IP with a token
+ * bucket each, such that the password of an attempt over the quota is never
+ * hashed. A bucket holds up to capacity attempts and regains one every
+ * refill interval. Its state is a single timestamp, the time at which the
+ * bucket is full again, updated with compare-and-set instead of a lock.
+ * Full buckets carry no information and are removed by a periodic sweep;
+ * once there are more buckets than the configured maximum, arbitrary ones
+ * are evicted. Resetting the bucket of a username that way takes as many
+ * attempts with other usernames, which the address buckets slow down.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final Logger log = LoggerFactory.getLogger(LoginRateLimiter.class);
+
+    private final Buckets usernameBuckets;
+    private final Buckets addressBuckets;
+    private final Clock clock;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public LoginRateLimiter(@Value("${auth.login-rate-limit.username.capacity:5}") int usernameCapacity,
+                            @Value("${auth.login-rate-limit.username.refill-interval:12s}") Duration usernameRefillInterval,
+                            @Value("${auth.login-rate-limit.address.capacity:20}") int addressCapacity,
+                            @Value("${auth.login-rate-limit.address.refill-interval:3s}") Duration addressRefillInterval,
+                            @Value("${auth.login-rate-limit.max-buckets:100000}") int maxBuckets) {
+        this(usernameCapacity, usernameRefillInterval, addressCapacity, addressRefillInterval, maxBuckets,
+                Clock.systemUTC());
+    }
+
+    LoginRateLimiter(int usernameCapacity, Duration usernameRefillInterval, int addressCapacity,
+                     Duration addressRefillInterval, int maxBuckets, Clock clock) {
+        if (maxBuckets <= 0) {
+            throw new IllegalArgumentException("The maximum number of buckets must be positive.");
+        }
+        this.usernameBuckets = new Buckets(usernameCapacity, usernameRefillInterval, maxBuckets);
+        this.addressBuckets = new Buckets(addressCapacity, addressRefillInterval, maxBuckets);
+        this.clock = clock;
+    }
+
+    /**
+     * Takes one attempt from the buckets of the username and of the address,
+     * or throws 429 TOO_MANY_REQUESTS if either of them is empty.
+     */
+    public void acquire(String username, String address) {
+        long now = clock.millis();
+        if (!addressBuckets.tryAcquire(address, now) || !usernameBuckets.tryAcquire(String.valueOf(username), now)) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts, please try again later.");
+        }
+        allowed.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.login-rate-limit.sweep-interval:60000}")
+    public void evictFull() {
+        long now = clock.millis();
+        int evicted = usernameBuckets.evictFull(now) + addressBuckets.evictFull(now);
+
+        log.debug("Evicted {} full buckets, {} buckets remain", evicted, size());
+    }
+
+    public int size() {
+        return usernameBuckets.size() + addressBuckets.size();
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Token buckets of one kind of key, implemented as generic cell rate
+     * algorithm: every attempt moves the time at which the bucket is full
+     * again one refill interval further, an attempt is rejected if that time
+     * would lie more than capacity refill intervals in the future.
+     */
+    private static final class Buckets {
+
+        private final Map<String, AtomicLong> fullAt = new ConcurrentHashMap<>();
+
+        private final long refillMillis;
+        private final long burstMillis;
+        private final int maxBuckets;
+
+        private Buckets(int capacity, Duration refillInterval, int maxBuckets) {
+            if (capacity <= 0 || refillInterval.isNegative() || refillInterval.isZero()) {
+                throw new IllegalArgumentException("The capacity and refill interval of a bucket must be positive.");
+            }
+            this.refillMillis = refillInterval.toMillis();
+            this.burstMillis = capacity * refillMillis;
+            this.maxBuckets = maxBuckets;
+        }
+
+        private boolean tryAcquire(String key, long now) {
+            AtomicLong bucket = fullAt.get(key);
+            if (bucket == null) {
+                bucket = fullAt.computeIfAbsent(key, k -> new AtomicLong(now));
+                if (fullAt.size() > maxBuckets) {
+                    evictOverflow();
+                }
+            }
+
+            while (true) {
+                long current = bucket.get();
+                long next = Math.max(current, now) + refillMillis;
+                if (next - now > burstMillis) {
+                    return false;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * An attempt racing with the removal of its bucket may not be
+         * counted, which only happens to full buckets.
+         */
+        private int evictFull(long now) {
+            int evicted = 0;
+            Iterator<AtomicLong> iterator = fullAt.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().get() <= now) {
+                    iterator.remove();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+
+        private void evictOverflow() {
+            Iterator<String> iterator = fullAt.keySet().iterator();
+            while (fullAt.size() > maxBuckets && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        private int size() {
+            return fullAt.size();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Presence Registry
+ * Keeps track of the users which are online, such that they can be listed
+ * without scanning the user table. Logins and logouts mark users as online or
+ * offline, every authenticated request counts as a heartbeat. Users without a
+ * heartbeat within the timeout are removed by a periodic sweep and set
+ * OFFLINE. All updates of the same user are serialized by the map, which
+ * keeps the ordered id set and the count consistent with it.
+ */
+@Component
+public class PresenceRegistry {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(PresenceRegistry.class);
+
+    private final Map<Long, Long> lastSeen = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> onlineUserIds = new ConcurrentSkipListSet<>();
+    private final AtomicInteger onlineCount = new AtomicInteger();
+
+    private final UserStatusBuffer statusBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long timeoutMillis;
+    private final Clock clock;
+
+    @Autowired
+    public PresenceRegistry(UserStatusBuffer statusBuffer, ApplicationEventPublisher eventPublisher,
+                            @Value("${presence.timeout:5m}") Duration timeout) {
+        this(statusBuffer, eventPublisher, timeout, Clock.systemUTC());
+    }
+
+    PresenceRegistry(UserStatusBuffer statusBuffer, ApplicationEventPublisher eventPublisher, Duration timeout,
+                     Clock clock) {
+        this.statusBuffer = statusBuffer;
+        this.eventPublisher = eventPublisher;
+        this.timeoutMillis = timeout.toMillis();
+        this.clock = clock;
+    }
+
+    public void markOnline(long userid) {
+        long now = clock.millis();
+        lastSeen.compute(userid, (id, seen) -> {
+            if (seen == null) {
+                onlineUserIds.add(id);
+                onlineCount.incrementAndGet();
+            }
+            return now;
+        });
+    }
+
+    public void markOffline(long userid) {
+        lastSeen.computeIfPresent(userid, (id, seen) -> {
+            onlineUserIds.remove(id);
+            onlineCount.decrementAndGet();
+            return null;
+        });
+    }
+
+    /**
+     * Extends the presence of an online user, offline users stay offline
+     * until they log in again.
+     */
+    public void heartbeat(long userid) {
+        long now = clock.millis();
+        lastSeen.computeIfPresent(userid, (id, seen) -> now);
+    }
+
+    public boolean isOnline(long userid) {
+        return lastSeen.containsKey(userid);
+    }
+
+    public int getOnlineCount() {
+        return onlineCount.get();
+    }
+
+    public List<Long> getOnlineUserIds(long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("The limit must be between 1 and %d.", MAX_PAGE_SIZE));
+        }
+
+        List<Long> userids = new ArrayList<>(Math.min(limit, onlineCount.get()));
+        Iterator<Long> iterator = onlineUserIds.tailSet(after, false).iterator();
+        while (userids.size() < limit && iterator.hasNext()) {
+            userids.add(iterator.next());
+        }
+        return userids;
+    }
+
+    @Scheduled(fixedDelayString = "${presence.sweep-interval:30000}")
+    public void expireInactive() {
+        long deadline = clock.millis() - timeoutMillis;
+        int expired = 0;
+
+        for (Map.Entry<Long, Long> entry : lastSeen.entrySet()) {
+            if (entry.getValue() > deadline) {
+                continue;
+            }
+            // the heartbeat may have been renewed in the meantime
+            Long seen = lastSeen.computeIfPresent(entry.getKey(), (id, lastHeartbeat) -> {
+                if (lastHeartbeat > deadline) {
+                    return lastHeartbeat;
+                }
+                onlineUserIds.remove(id);
+                onlineCount.decrementAndGet();
+                return null;
+            });
+            if (seen == null) {
+                statusBuffer.record(entry.getKey(), UserStatus.OFFLINE);
+                eventPublisher.publishEvent(UserChangedEvent.statusChanged(entry.getKey(), UserStatus.OFFLINE));
+                expired++;
+            }
+        }
+
+        log.debug("Expired {} inactive users, {} users remain online", expired, onlineCount.get());
+    }
+}
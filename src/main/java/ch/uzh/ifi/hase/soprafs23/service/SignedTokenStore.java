@@ -0,0 +1,214 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signed Token Store
+ * Stateless TokenStore, enabled with auth.token-store=signed. Login hands out
+ * tokens of the form userid.expiry.signature, signed with HMAC-SHA256, which
+ * are verified without any lookup. The only state is the set of tokens
+ * revoked by a logout, each kept until it would have expired anyway.
+ * Without a configured secret, a random one is generated at startup, which
+ * invalidates all tokens on a restart and cannot be shared between instances.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.token-store", havingValue = "signed")
+public class SignedTokenStore implements TokenStore {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Logger log = LoggerFactory.getLogger(SignedTokenStore.class);
+
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private final Mac prototype;
+    private final BlockingQueue<Mac> macs = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+    private final long ttlMillis;
+    private final Clock clock;
+
+    @Autowired
+    public SignedTokenStore(@Value("${auth.token-store.secret:#{null}}") String secret,
+                            @Value("${auth.token-store.ttl:1h}") Duration ttl) {
+        this(secret, ttl, Clock.systemUTC());
+    }
+
+    SignedTokenStore(String secret, Duration ttl, Clock clock) {
+        byte[] key;
+        if (secret == null) {
+            log.warn("No auth.token-store.secret configured, tokens are signed with a random secret");
+            key = new byte[MIN_SECRET_LENGTH];
+            new SecureRandom().nextBytes(key);
+        }
+        else {
+            key = Base64.getDecoder().decode(secret);
+        }
+        if (key.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException(String.format("The token secret must be at least %d bytes long.", MIN_SECRET_LENGTH));
+        }
+
+        this.prototype = newMac(key);
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    @Override
+    public String issue(long userid, String storedToken) {
+        String payload = userid + "." + (clock.millis() + ttlMillis);
+        return payload + "." + sign(payload);
+    }
+
+    /**
+     * Tokens are not stored, there is nothing to remember.
+     */
+    @Override
+    public void put(String token, long userid) {
+    }
+
+    @Override
+    public Optional<Long> findUserId(String token) {
+        Optional<Claims> claims = verify(token);
+        if (claims.isEmpty() || revokedTokens.containsKey(token)) {
+            return Optional.empty();
+        }
+        return Optional.of(claims.get().userid);
+    }
+
+    @Override
+    public void remove(String token) {
+        verify(token).ifPresent(claims -> revokedTokens.put(token, claims.expiresAt));
+    }
+
+    @Override
+    public boolean isAuthoritative() {
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${auth.token-store.sweep-interval:60000}")
+    public void evictExpired() {
+        long now = clock.millis();
+        Iterator<Long> iterator = revokedTokens.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() <= now) {
+                iterator.remove();
+            }
+        }
+        log.debug("{} revoked tokens remain", revokedTokens.size());
+    }
+
+    public int getRevokedCount() {
+        return revokedTokens.size();
+    }
+
+    /**
+     * Returns the claims of a token with a valid signature that has not
+     * expired yet. The signature is compared in constant time.
+     */
+    private Optional<Claims> verify(String token) {
+        int signatureStart = token == null ? -1 : token.lastIndexOf('.');
+        int expiryStart = signatureStart < 0 ? -1 : token.lastIndexOf('.', signatureStart - 1);
+        if (expiryStart < 0) {
+            return Optional.empty();
+        }
+
+        String payload = token.substring(0, signatureStart);
+        byte[] expectedSignature = mac(payload);
+        byte[] signature;
+        try {
+            signature = DECODER.decode(token.substring(signatureStart + 1));
+        }
+        catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(expectedSignature, signature)) {
+            return Optional.empty();
+        }
+
+        // the signature proves that both numbers were written by issue
+        Claims claims = new Claims(Long.parseLong(payload.substring(0, expiryStart)),
+                Long.parseLong(payload.substring(expiryStart + 1)));
+        if (claims.expiresAt <= clock.millis()) {
+            return Optional.empty();
+        }
+        return Optional.of(claims);
+    }
+
+    private String sign(String payload) {
+        return ENCODER.encodeToString(mac(payload));
+    }
+
+    /**
+     * Mac instances are not thread-safe, each call borrows one from a small
+     * pool shared by all threads rather than keeping one per thread, which
+     * would create one per request on virtual threads.
+     */
+    private byte[] mac(String payload) {
+        Mac mac = macs.poll();
+        if (mac == null) {
+            mac = cloneMac(prototype);
+        }
+        byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        // doFinal resets the Mac, a full pool drops it
+        macs.offer(mac);
+        return signature;
+    }
+
+    private static Mac newMac(byte[] key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not initialize the token signature.", e);
+        }
+    }
+
+    /**
+     * Cloning the initialized prototype is cheaper than looking up and
+     * initializing a new Mac.
+     */
+    private static Mac cloneMac(Mac prototype) {
+        try {
+            return (Mac) prototype.clone();
+        }
+        catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Could not copy the token signature.", e);
+        }
+    }
+
+    private static final class Claims {
+        private final long userid;
+        private final long expiresAt;
+
+        private Claims(long userid, long expiresAt) {
+            this.userid = userid;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
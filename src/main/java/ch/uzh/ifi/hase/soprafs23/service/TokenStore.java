@@ -0,0 +1,36 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import java.util.Optional;
+
+/**
+ * Token Store
+ * Resolves auth tokens to the id of the user they belong to without going to
+ * the database. Implementations decide how long a token is kept; the
+ * AuthService falls back to the database for tokens a store does not know
+ * (anymore).
+ */
+public interface TokenStore {
+
+    void put(String token, long userid);
+
+    Optional<Long> findUserId(String token);
+
+    void remove(String token);
+
+    /**
+     * Returns the token handed out at login. By default this is the token
+     * stored with the user, which is put into the store.
+     */
+    default String issue(long userid, String storedToken) {
+        put(storedToken, userid);
+        return storedToken;
+    }
+
+    /**
+     * Whether findUserId knows every valid token, in which case the
+     * AuthService does not fall back to the database.
+     */
+    default boolean isAuthoritative() {
+        return false;
+    }
+}
@@ -0,0 +1,46 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+
+import java.time.LocalDate;
+
+/**
+ * User Changed Event
+ * Published whenever a user is created or the status or the profile of a
+ * user changes. Only the changed attributes are set, the others are null;
+ * the event of a created user carries all of them.
+ */
+public class UserChangedEvent {
+
+    private final long id;
+    private final String username;
+    private final UserStatus status;
+    private final LocalDate birthday;
+
+    public UserChangedEvent(long id, String username, UserStatus status, LocalDate birthday) {
+        this.id = id;
+        this.username = username;
+        this.status = status;
+        this.birthday = birthday;
+    }
+
+    public static UserChangedEvent statusChanged(long id, UserStatus status) {
+        return new UserChangedEvent(id, null, status, null);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public UserStatus getStatus() {
+        return status;
+    }
+
+    public LocalDate getBirthday() {
+        return birthday;
+    }
+}
@@ -0,0 +1,190 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.rest.mapper.DTOMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * User Event Hub
+ * Fans out user changes to the subscribers of the event stream. Every event
+ * is serialized once and offered to a bounded queue per subscriber, so
+ * publishing never blocks on a client. The queues are drained on virtual
+ * threads, such that a slow client only stalls its own delivery. A subscriber
+ * whose queue is full is dropped, the client is expected to reconnect and
+ * reload the users. Only the drain task touches the emitter: its send holds
+ * the lock of the emitter while writing to the client, so completing it from
+ * the publishing thread could block that thread on a slow client.
+ */
+@Component
+public class UserEventHub implements DisposableBean {
+
+    public static final String EVENT_NAME = "user";
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(UserEventHub.class);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    private final LongAdder dropped = new LongAdder();
+
+    @Autowired
+    public UserEventHub(ObjectMapper objectMapper,
+                        @Value("${user.events.buffer-size:256}") int bufferSize,
+                        @Value("${user.events.timeout:30m}") Duration timeout) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("The event buffer size must be positive.");
+        }
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        subscribe(emitter);
+        return emitter;
+    }
+
+    void subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(DTOMapper.INSTANCE.convertUserChangedEventToUserEventDTO(event));
+        }
+        catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(data);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        subscribers.forEach(Subscriber::close);
+        executor.shutdown();
+        // drains stuck on a slow client are interrupted
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(String data) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(data)) {
+                if (subscribers.remove(this)) {
+                    dropped.increment();
+                    log.debug("Dropped a subscriber of the user events, {} events are pending", queue.size());
+                    close();
+                }
+                return;
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Discards the pending events and leaves completing the emitter to
+         * the drain task.
+         */
+        private void close() {
+            subscribers.remove(this);
+            closed = true;
+            queue.clear();
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                String data;
+                while (!closed && (data = queue.poll()) != null) {
+                    emitter.send(SseEmitter.event().name(EVENT_NAME).data(data));
+                }
+                if (closed) {
+                    emitter.complete();
+                    return;
+                }
+            }
+            catch (IOException | IllegalStateException e) {
+                // the client is gone or the emitter has been completed
+                subscribers.remove(this);
+                return;
+            }
+            finally {
+                draining.set(false);
+            }
+
+            // events offered or a close after the last poll, but before the flag was reset
+            if (closed || !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * User Import Result
+ * Outcome of importing a single user, carries the id of the created user or
+ * the reason why the user was rejected.
+ */
+public class UserImportResult {
+
+    private final String username;
+    private final HttpStatus status;
+    private final Long id;
+    private final String message;
+
+    private UserImportResult(String username, HttpStatus status, Long id, String message) {
+        this.username = username;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    public static UserImportResult created(String username, long id) {
+        return new UserImportResult(username, HttpStatus.CREATED, id, null);
+    }
+
+    public static UserImportResult rejected(String username, HttpStatus status, String message) {
+        return new UserImportResult(username, status, null, message);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,145 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.security.OffloadingPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * User Import Service
+ * Creates many users at once. The usernames of a batch are checked against
+ * the database with a single query, the passwords are hashed in parallel and
+ * the users are inserted in JDBC batches within one transaction per batch.
+ * Should another request take one of the usernames in the meantime, the
+ * batch is retried user by user to find the conflicting ones. The created
+ * users are added to the UsernameIndex directly instead of publishing an
+ * event per user.
+ */
+@Service
+public class UserImportService {
+
+    private static final String NOT_UNIQUE_MESSAGE = "The username provided is not unique.";
+
+    private final Logger log = LoggerFactory.getLogger(UserImportService.class);
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final UsernameIndex usernameIndex;
+
+    @Autowired
+    public UserImportService(@Qualifier("userRepository") UserRepository userRepository,
+                             PasswordEncoder passwordEncoder,
+                             PlatformTransactionManager transactionManager,
+                             UsernameIndex usernameIndex) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.usernameIndex = usernameIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Imports a batch of users, the results are in the order of the users.
+     */
+    public List<UserImportResult> importUsers(List<User> users) {
+        UserImportResult[] results = new UserImportResult[users.size()];
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (isNullOrBlank(user.getUsername())) {
+                results[i] = UserImportResult.rejected(user.getUsername(), HttpStatus.BAD_REQUEST, "The username must not be empty.");
+            }
+            else if (isNullOrBlank(user.getPassword())) {
+                results[i] = UserImportResult.rejected(user.getUsername(), HttpStatus.BAD_REQUEST, "The password must not be empty.");
+            }
+            else if (candidates.putIfAbsent(user.getUsername(), i) != null) {
+                results[i] = UserImportResult.rejected(user.getUsername(), HttpStatus.CONFLICT, NOT_UNIQUE_MESSAGE);
+            }
+        }
+
+        Set<String> existingUsernames = candidates.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(userRepository.findExistingUsernames(candidates.keySet()));
+
+        List<Integer> newUserIndexes = new ArrayList<>(candidates.size());
+        for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+            if (existingUsernames.contains(candidate.getKey())) {
+                results[candidate.getValue()] = UserImportResult.rejected(candidate.getKey(), HttpStatus.CONFLICT, NOT_UNIQUE_MESSAGE);
+            }
+            else {
+                newUserIndexes.add(candidate.getValue());
+            }
+        }
+
+        List<User> newUsers = newUserIndexes.stream().map(users::get).collect(Collectors.toList());
+        List<String> encodedPasswords = encodeAll(newUsers.stream().map(User::getPassword).collect(Collectors.toList()));
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            user.setToken(UUID.randomUUID().toString());
+            user.setStatus(UserStatus.OFFLINE);
+            user.setPassword(encodedPasswords.get(i));
+            user.setCreationDate(LocalDate.now());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(transaction -> {
+                userRepository.saveAll(newUsers);
+                userRepository.flush();
+            });
+            for (int index : newUserIndexes) {
+                results[index] = UserImportResult.created(users.get(index).getUsername(), users.get(index).getId());
+                usernameIndex.put(users.get(index).getId(), users.get(index).getUsername());
+            }
+        }
+        catch (DataIntegrityViolationException e) {
+            log.debug("Importing {} users one by one after a conflict", newUsers.size());
+            for (int index : newUserIndexes) {
+                results[index] = importUser(users.get(index));
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    private UserImportResult importUser(User user) {
+        // the id has been assigned by the failed batch
+        user.setId(null);
+        try {
+            transactionTemplate.executeWithoutResult(transaction -> userRepository.saveAndFlush(user));
+            usernameIndex.put(user.getId(), user.getUsername());
+            return UserImportResult.created(user.getUsername(), user.getId());
+        }
+        catch (DataIntegrityViolationException e) {
+            if (!UserService.isUsernameConflict(e)) {
+                throw e;
+            }
+            return UserImportResult.rejected(user.getUsername(), HttpStatus.CONFLICT, NOT_UNIQUE_MESSAGE);
+        }
+    }
+
+    private List<String> encodeAll(List<String> rawPasswords) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder) {
+            return ((OffloadingPasswordEncoder) passwordEncoder).encodeAll(rawPasswords);
+        }
+        return rawPasswords.stream().map(passwordEncoder::encode).collect(Collectors.toList());
+    }
+
+    private boolean isNullOrBlank(String input) {
+        return input == null || input.isBlank();
+    }
+}
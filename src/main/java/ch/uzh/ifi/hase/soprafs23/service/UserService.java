@@ -3,10 +3,16 @@ package ch.uzh.ifi.hase.soprafs23.service;
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
 import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -14,8 +20,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * User Service
@@ -28,78 +41,221 @@ import java.util.UUID;
 @Transactional
 public class UserService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final Logger log = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
 
     private final PasswordEncoder passwordEncoder;
 
+    private final UserStatusBuffer statusBuffer;
+
+    private final PresenceRegistry presenceRegistry;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public UserService(@Qualifier("userRepository") UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(@Qualifier("userRepository") UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       UserStatusBuffer statusBuffer, PresenceRegistry presenceRegistry,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.statusBuffer = statusBuffer;
+        this.presenceRegistry = presenceRegistry;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserSummary> getUserSummaries() {
+        Map<Long, UserStatus> pendingStatuses = statusBuffer.getPendingStatuses();
+        return this.userRepository.findAllSummaries().stream()
+                .map(user -> withPendingStatus(user, pendingStatuses))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tag that changes whenever a user is created, deleted or updated, see
+     * UsersVersion. Empty while status changes are pending, since these only
+     * change the tag once written to the database.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getUsersVersion() {
+        if (statusBuffer.size() > 0) {
+            return Optional.empty();
+        }
+        return Optional.of(this.userRepository.findUsersVersion().getTag());
     }
 
-    public List<User> getUsers() {
-        return this.userRepository.findAll();
+    /**
+     * Returns at most limit users with an id greater than the given cursor,
+     * ordered by id. The id of the last user is the cursor of the next page.
+     */
+    @Transactional(readOnly = true)
+    public List<UserSummary> getUsersAfter(long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("The limit must be between 1 and %d.", MAX_PAGE_SIZE));
+        }
+        Map<Long, UserStatus> pendingStatuses = statusBuffer.getPendingStatuses();
+        return this.userRepository.findSummariesAfter(after, PageRequest.of(0, limit)).stream()
+                .map(user -> withPendingStatus(user, pendingStatuses))
+                .collect(Collectors.toList());
     }
 
+    /**
+     * Loads the users with the given ids with a single query, keyed by id.
+     * Ids without a user are missing from the result.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, UserSummary> getUserSummariesByIds(Collection<Long> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("The number of ids must be between 1 and %d.", MAX_PAGE_SIZE));
+        }
+        Map<Long, UserStatus> pendingStatuses = statusBuffer.getPendingStatuses(ids);
+        return this.userRepository.findSummariesByIds(ids).stream()
+                .map(user -> withPendingStatus(user, pendingStatuses))
+                .collect(Collectors.toMap(UserSummary::getId, Function.identity()));
+    }
+
+    /**
+     * Passes every user to the consumer, ordered by id. The summaries are
+     * not managed by the persistence context, hence none of them is kept in
+     * memory once the consumer is done with it.
+     */
+    @Transactional(readOnly = true)
+    public void streamUsers(Consumer<UserSummary> consumer) {
+        Map<Long, UserStatus> pendingStatuses = statusBuffer.getPendingStatuses();
+        try (Stream<UserSummary> users = this.userRepository.streamAllSummaries()) {
+            users.map(user -> withPendingStatus(user, pendingStatuses)).forEach(consumer);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public User getUserById(long id) {
-        return this.userRepository.findById(id)
+        Optional<UserStatus> pendingStatus = statusBuffer.getPendingStatus(id);
+        User user = this.userRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("No user found with id %d.", id)));
+        pendingStatus.ifPresent(user::setStatus);
+        return user;
+    }
+
+    @Transactional(readOnly = true)
+    public UserSummary getUserSummaryById(long id) {
+        Optional<UserStatus> pendingStatus = statusBuffer.getPendingStatus(id);
+        return this.userRepository.findSummaryById(id)
+                .map(user -> pendingStatus.map(user::withStatus).orElse(user))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("No user found with id %d.", id)));
     }
 
+    /**
+     * Relies on the unique constraint of the username instead of checking it
+     * upfront, which saves a query and cannot race with a concurrent request.
+     */
     public User createUser(User newUser) {
         newUser.setToken(UUID.randomUUID().toString());
         newUser.setStatus(UserStatus.OFFLINE);
-        checkIfUsernameExists(newUser.getUsername());
         newUser.setPassword(passwordEncoder.encode(newUser.getPassword()));
         newUser.setCreationDate(LocalDate.now());
-        // saves the given entity but data is only persisted in the database once
-        // flush() is called
-        newUser = userRepository.save(newUser);
-        userRepository.flush();
+        newUser = saveAndFlush(newUser);
+        eventPublisher.publishEvent(new UserChangedEvent(newUser.getId(), newUser.getUsername(), newUser.getStatus(),
+                newUser.getBirthday()));
 
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
 
-    private void checkIfUsernameExists(String username) {
-        User userByUsername = userRepository.findByUsername(username);
-
-        String baseErrorMessage = "The %s provided %s not unique.";
-        if (userByUsername != null) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, String.format(baseErrorMessage, "username", "is"));
-        }
-    }
-
-    public User updateUser(User userInput, long id) {
+    /**
+     * The pending status is only applied to the returned summary. Set on the
+     * loaded user, it would be written along with the update and could
+     * overwrite a newer status flushed in the meantime.
+     */
+    public UserSummary updateUser(User userInput, long id) {
+        Optional<UserStatus> pendingStatus = statusBuffer.getPendingStatus(id);
         User userById = userRepository.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, String.format("No user exists with id %d", id)));
+        String changedUsername = null;
+        LocalDate changedBirthday = null;
 
         if (!isNullOrBlank(userInput.getUsername()) && !userById.getUsername().equals(userInput.getUsername())) {
-            checkIfUsernameExists(userInput.getUsername());
             userById.setUsername(userInput.getUsername());
+            changedUsername = userInput.getUsername();
         }
 
-        if (!(userInput.getBirthday() == null)) {
+        if (!(userInput.getBirthday() == null) && !userInput.getBirthday().equals(userById.getBirthday())) {
             userById.setBirthday(userInput.getBirthday());
+            changedBirthday = userInput.getBirthday();
+        }
+
+        User updatedUser = saveAndFlush(userById);
+        if (changedUsername != null || changedBirthday != null) {
+            eventPublisher.publishEvent(new UserChangedEvent(id, changedUsername, null, changedBirthday));
+        }
+        return new UserSummary(updatedUser.getId(), updatedUser.getUsername(),
+                pendingStatus.orElse(updatedUser.getStatus()), updatedUser.getBirthday(),
+                updatedUser.getCreationDate(), updatedUser.getVersion());
+    }
+
+    /**
+     * Flushes right away, such that a taken username is reported as
+     * 409 CONFLICT instead of failing the commit. So is an update of a user
+     * that has been changed since it was loaded, e.g. by a status flush.
+     */
+    private User saveAndFlush(User user) {
+        try {
+            // saves the given entity but data is only persisted in the database once
+            // flush() is called
+            User savedUser = userRepository.save(user);
+            userRepository.flush();
+            return savedUser;
+        }
+        catch (DataIntegrityViolationException e) {
+            if (isUsernameConflict(e)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "The username provided is not unique.");
+            }
+            throw e;
+        }
+        catch (OptimisticLockingFailureException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The user has been changed concurrently, please retry.");
         }
+    }
 
-        return userRepository.save(userById);
+    static boolean isUsernameConflict(DataIntegrityViolationException exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                return constraintName != null && constraintName.toUpperCase().contains(User.USERNAME_CONSTRAINT);
+            }
+        }
+        return false;
     }
 
     private boolean isNullOrBlank(String input) {
         return input == null || input.equals("");
     }
 
-    public User changeStatus(long userid, UserStatus status) {
-        User user = userRepository
-                .findById(userid)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-
-        user.setStatus(status);
+    /**
+     * The status is written to the database asynchronously by the
+     * UserStatusBuffer, which coalesces the changes of the same user.
+     */
+    public void changeStatus(long userid, UserStatus status) {
+        if (status == UserStatus.ONLINE) {
+            presenceRegistry.markOnline(userid);
+        }
+        else {
+            presenceRegistry.markOffline(userid);
+        }
+        statusBuffer.record(userid, status);
+        eventPublisher.publishEvent(UserChangedEvent.statusChanged(userid, status));
+    }
 
-        return userRepository.save(user);
+    /**
+     * The pending statuses have to be taken from the buffer before the users
+     * are queried, see UserStatusBuffer.
+     */
+    private UserSummary withPendingStatus(UserSummary user, Map<Long, UserStatus> pendingStatuses) {
+        UserStatus pendingStatus = pendingStatuses.get(user.getId());
+        return pendingStatus == null ? user : user.withStatus(pendingStatus);
     }
 }
@@ -0,0 +1,103 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User Status Buffer
+ * Collects the status changes of login and logout in memory and writes them
+ * to the database periodically. Changes of the same user in between two
+ * flushes are coalesced, only the latest status is written. A flush sets
+ * the status of all users that changed to the same status with one JDBC
+ * batch, without loading them, and evicts only these users from the
+ * second-level cache. Until then, reads have to ask the buffer
+ * for the latest status. They have to do so before they query the database:
+ * a flush removes the statuses once written, so a read asking afterwards
+ * could miss a status that was written after its query. Flushes do not
+ * overlap, the scheduled flush waits for an explicit one and vice versa.
+ */
+@Component
+public class UserStatusBuffer {
+
+    private static final int FLUSH_CHUNK_SIZE = 1000;
+
+    private final Logger log = LoggerFactory.getLogger(UserStatusBuffer.class);
+
+    private final Map<Long, UserStatus> pendingStatuses = new ConcurrentHashMap<>();
+
+    private final UserRepository userRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public UserStatusBuffer(@Qualifier("userRepository") UserRepository userRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(long userid, UserStatus status) {
+        pendingStatuses.put(userid, status);
+    }
+
+    public Optional<UserStatus> getPendingStatus(long userid) {
+        return Optional.ofNullable(pendingStatuses.get(userid));
+    }
+
+    public Map<Long, UserStatus> getPendingStatuses() {
+        return new HashMap<>(pendingStatuses);
+    }
+
+    public Map<Long, UserStatus> getPendingStatuses(Collection<Long> userids) {
+        Map<Long, UserStatus> statuses = new HashMap<>();
+        for (Long userid : userids) {
+            UserStatus status = pendingStatuses.get(userid);
+            if (status != null) {
+                statuses.put(userid, status);
+            }
+        }
+        return statuses;
+    }
+
+    public int size() {
+        return pendingStatuses.size();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${user.status.flush-interval:500}")
+    public synchronized void flush() {
+        if (pendingStatuses.isEmpty()) {
+            return;
+        }
+
+        Map<Long, UserStatus> snapshot = new HashMap<>(pendingStatuses);
+        Map<UserStatus, List<Long>> useridsByStatus = new EnumMap<>(UserStatus.class);
+        snapshot.forEach((userid, status) -> useridsByStatus.computeIfAbsent(status, s -> new ArrayList<>()).add(userid));
+
+        useridsByStatus.forEach((status, userids) -> {
+            for (int from = 0; from < userids.size(); from += FLUSH_CHUNK_SIZE) {
+                List<Long> chunk = userids.subList(from, Math.min(from + FLUSH_CHUNK_SIZE, userids.size()));
+                transactionTemplate.executeWithoutResult(transaction -> userRepository.updateStatuses(status, chunk));
+
+                // keep the statuses that changed again while flushing for the next flush
+                for (Long userid : chunk) {
+                    pendingStatuses.remove(userid, status);
+                }
+            }
+        });
+
+        log.debug("Flushed the status of {} users", snapshot.size());
+    }
+}
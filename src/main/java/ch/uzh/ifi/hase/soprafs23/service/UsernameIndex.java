@@ -0,0 +1,102 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Username Index
+ * Sorted in-memory index of the usernames, which answers prefix searches
+ * without querying the database. It is loaded from the database at startup
+ * and kept up to date by the UserChangedEvents of created and renamed users.
+ * Events that arrive while it is being loaded take precedence over the
+ * loaded rows, which may be older.
+ */
+@Component
+public class UsernameIndex implements ApplicationRunner {
+
+    public static final int MAX_LIMIT = 100;
+
+    private final Logger log = LoggerFactory.getLogger(UsernameIndex.class);
+
+    private final ConcurrentSkipListMap<String, Long> idsByUsername = new ConcurrentSkipListMap<>();
+    private final Map<Long, String> usernamesById = new ConcurrentHashMap<>();
+
+    private final UserService userService;
+
+    @Autowired
+    public UsernameIndex(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        userService.streamUsers(user -> usernamesById.computeIfAbsent(user.getId(), id -> {
+            idsByUsername.put(user.getUsername(), id);
+            return user.getUsername();
+        }));
+
+        log.info("Indexed {} usernames in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getUsername() != null) {
+            put(event.getId(), event.getUsername());
+        }
+    }
+
+    /**
+     * Indexes the username of a user, replacing its previous one. Changes
+     * of the same user are applied one at a time.
+     */
+    public void put(long id, String username) {
+        usernamesById.compute(id, (userid, previousUsername) -> {
+            if (previousUsername != null) {
+                idsByUsername.remove(previousUsername, userid);
+            }
+            idsByUsername.put(username, userid);
+            return username;
+        });
+    }
+
+    /**
+     * Returns the ids of at most limit users whose username starts with the
+     * prefix, ordered by username. The search is case-sensitive.
+     */
+    public List<Map.Entry<String, Long>> search(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The prefix must not be empty.");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("The limit must be between 1 and %d.", MAX_LIMIT));
+        }
+
+        List<Map.Entry<String, Long>> matches = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, Long> entry : idsByUsername.tailMap(prefix).entrySet()) {
+            if (matches.size() == limit || !entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            matches.add(entry);
+        }
+        return matches;
+    }
+
+    public int size() {
+        return usernamesById.size();
+    }
+}
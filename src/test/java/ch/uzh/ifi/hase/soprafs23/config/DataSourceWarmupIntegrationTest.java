@@ -0,0 +1,35 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@WebAppConfiguration
+@SpringBootTest
+@ActiveProfiles("production")
+public class DataSourceWarmupIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void startup_poolSizedAndWarmedUp() {
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+        int expectedSize = 2 * Runtime.getRuntime().availableProcessors() + 1;
+
+        assertEquals(expectedSize, hikariDataSource.getMaximumPoolSize());
+        assertEquals(expectedSize, hikariDataSource.getHikariPoolMXBean().getTotalConnections());
+        assertEquals(0.0, meterRegistry.get("datasource.pool.saturation").gauge().value());
+    }
+}
@@ -0,0 +1,46 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("faststart")
+public class FaststartProfileIntegrationTest {
+
+    private static final String USER_JSON = "{\"username\": \"faststart\", \"password\": \"password\"}";
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void startup_beansCreatedOnFirstUse() throws Exception {
+        assertFalse(context.getBeanFactory().containsSingleton("userImportService"));
+        assertFalse(context.containsBean("h2Console"));
+
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).content(USER_JSON))
+                .andExpect(status().isCreated());
+        MvcResult result = mockMvc.perform(post("/session").contentType(MediaType.APPLICATION_JSON).content(USER_JSON))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.username", is("faststart")));
+    }
+}
@@ -0,0 +1,184 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import ch.uzh.ifi.hase.soprafs23.Application;
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.service.DatabaseBackup;
+import ch.uzh.ifi.hase.soprafs23.service.DatabaseBackupService;
+import ch.uzh.ifi.hase.soprafs23.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs23.service.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application with the persistent profile on a database in a
+ * temporary directory, restarting it where the test needs to.
+ */
+public class PersistentProfileIntegrationTest {
+
+    private static final long BACKUP_TIMEOUT_MILLIS = 30_000;
+
+    @TempDir
+    Path directory;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void restart_usersSurvive() {
+        User createdUser;
+        try (ConfigurableApplicationContext context = start()) {
+            createdUser = context.getBean(UserService.class).createUser(newUser("persistent"));
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            User storedUser = context.getBean("userRepository", UserRepository.class).findByToken(createdUser.getToken())
+                    .orElseThrow();
+            assertEquals(createdUser.getId(), storedUser.getId());
+            assertEquals("persistent", storedUser.getUsername());
+
+            // the sequence is persisted as well, the ids are not handed out again
+            User secondUser = context.getBean(UserService.class).createUser(newUser("second"));
+            assertTrue(secondUser.getId() > createdUser.getId());
+        }
+    }
+
+    @Test
+    public void restart_onlineUsersSetOffline() {
+        long id;
+        try (ConfigurableApplicationContext context = start()) {
+            UserService userService = context.getBean(UserService.class);
+            id = userService.createUser(newUser("online")).getId();
+            userService.changeStatus(id, UserStatus.ONLINE);
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            UserService userService = context.getBean(UserService.class);
+            assertEquals(UserStatus.OFFLINE, userService.getUserSummaryById(id).getStatus());
+            assertEquals(0, context.getBean(PresenceRegistry.class).getOnlineCount());
+        }
+    }
+
+    @Test
+    public void startBackup_backupWritten() throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            context.getBean(UserService.class).createUser(newUser("backedUp"));
+            DatabaseBackupService backupService = context.getBean(DatabaseBackupService.class);
+
+            DatabaseBackup backup = backupService.startBackup();
+            assertEquals(DatabaseBackup.State.RUNNING, backup.getState());
+
+            backup = awaitBackup(backupService, backup.getName());
+            assertEquals(DatabaseBackup.State.COMPLETED, backup.getState(), backup.getMessage());
+            Path file = directory.resolve("backups").resolve(backup.getName());
+            assertTrue(Files.exists(file));
+            assertEquals(backup.getSize(), Files.size(file));
+        }
+    }
+
+    @Test
+    public void startBackup_oldBackupsDeleted() throws Exception {
+        Path otherFile = Files.createDirectories(directory.resolve("backups")).resolve("other.zip");
+        Files.createFile(otherFile);
+
+        try (ConfigurableApplicationContext context = start("--database.backup.retention=2")) {
+            DatabaseBackupService backupService = context.getBean(DatabaseBackupService.class);
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                DatabaseBackup backup = awaitBackup(backupService, backupService.startBackup().getName());
+                assertEquals(DatabaseBackup.State.COMPLETED, backup.getState(), backup.getMessage());
+                names.add(backup.getName());
+            }
+
+            assertEquals(names.subList(1, 3), backupService.getBackups().stream()
+                    .map(DatabaseBackup::getName)
+                    .collect(Collectors.toList()));
+            try (Stream<Path> files = Files.list(directory.resolve("backups"))) {
+                assertEquals(List.of(names.get(1), names.get(2), "other.zip"), files
+                        .map(file -> file.getFileName().toString())
+                        .sorted()
+                        .collect(Collectors.toList()));
+            }
+        }
+    }
+
+    @Test
+    public void backupEndpoint_onlyServedOnManagementPort() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .profiles("persistent")
+                .run("--database.directory=" + directory, "--spring.main.banner-mode=off",
+                        "--server.port=0", "--management.server.port=0")) {
+            String serverPort = context.getEnvironment().getProperty("local.server.port");
+            String managementPort = context.getEnvironment().getProperty("local.management.port");
+            assertNotEquals(serverPort, managementPort);
+
+            assertEquals(404, send("POST", serverPort, "/actuator/backups").statusCode());
+
+            HttpResponse<String> response = send("POST", managementPort, "/actuator/backups");
+            assertEquals(202, response.statusCode());
+            String name = objectMapper.readTree(response.body()).get("name").asText();
+
+            JsonNode backup = objectMapper.readTree(send("GET", managementPort, "/actuator/backups/" + name).body());
+            long deadline = System.currentTimeMillis() + BACKUP_TIMEOUT_MILLIS;
+            while ("RUNNING".equals(backup.get("state").asText()) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                backup = objectMapper.readTree(send("GET", managementPort, "/actuator/backups/" + name).body());
+            }
+            assertEquals("COMPLETED", backup.get("state").asText());
+
+            assertEquals(404, send("GET", managementPort, "/actuator/backups/unknown.zip").statusCode());
+        }
+    }
+
+    private HttpResponse<String> send(String method, String port, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static DatabaseBackup awaitBackup(DatabaseBackupService backupService, String name) throws InterruptedException {
+        DatabaseBackup backup = backupService.getBackup(name);
+        long deadline = System.currentTimeMillis() + BACKUP_TIMEOUT_MILLIS;
+        while (backup.getState() == DatabaseBackup.State.RUNNING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            backup = backupService.getBackup(name);
+        }
+        return backup;
+    }
+
+    private ConfigurableApplicationContext start(String... args) {
+        List<String> allArgs = new ArrayList<>(List.of("--database.directory=" + directory, "--spring.main.banner-mode=off"));
+        allArgs.addAll(List.of(args));
+        return new SpringApplicationBuilder(Application.class)
+                .profiles("persistent")
+                .web(WebApplicationType.NONE)
+                .run(allArgs.toArray(new String[0]));
+    }
+
+    private static User newUser(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("password");
+        return user;
+    }
+}
@@ -0,0 +1,58 @@
+package ch.uzh.ifi.hase.soprafs23.config;
+
+import ch.uzh.ifi.hase.soprafs23.Application;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application with and without virtual threads and checks on
+ * which threads the requests and the asynchronous tasks run.
+ */
+public class VirtualThreadsConfigIntegrationTest {
+
+    @Test
+    public void enabled_requestsAndTasksOnVirtualThreads() throws Exception {
+        try (ServletWebServerApplicationContext context = start(true)) {
+            assertTrue(runsOnVirtualThread(requestExecutor(context)));
+            assertTrue(runsOnVirtualThread(context.getBean(
+                    TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class)));
+        }
+    }
+
+    @Test
+    public void disabled_requestsAndTasksOnPlatformThreads() throws Exception {
+        try (ServletWebServerApplicationContext context = start(false)) {
+            assertFalse(runsOnVirtualThread(requestExecutor(context)));
+            assertFalse(runsOnVirtualThread(context.getBean(
+                    TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class)));
+        }
+    }
+
+    private static Executor requestExecutor(ServletWebServerApplicationContext context) {
+        return ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector().getProtocolHandler().getExecutor();
+    }
+
+    private static boolean runsOnVirtualThread(Executor executor) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get(5, TimeUnit.SECONDS);
+    }
+
+    private static ServletWebServerApplicationContext start(boolean virtualThreads) {
+        return (ServletWebServerApplicationContext) new SpringApplicationBuilder(Application.class)
+                // a database of its own, closing the context drops the schema
+                .run("--spring.threads.virtual.enabled=" + virtualThreads, "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:virtual-threads-" + virtualThreads,
+                        "--spring.main.banner-mode=off");
+    }
+}
@@ -0,0 +1,44 @@
+package ch.uzh.ifi.hase.soprafs23.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Sends logins through a real server, such that the client address is taken
+ * from X-Forwarded-For like behind the App Engine front end.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "auth.login-rate-limit.address.capacity=1",
+        "auth.login-rate-limit.address.refill-interval=1h"})
+public class LoginRateLimitIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @Test
+    public void login_forwardedClients_separateBuckets() throws Exception {
+        assertEquals(401, login("unknown-1", "203.0.113.1"));
+        assertEquals(429, login("unknown-2", "203.0.113.1"));
+        assertEquals(401, login("unknown-3", "203.0.113.2"));
+    }
+
+    private int login(String username, String forwardedFor) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/session"))
+                .header("Content-Type", "application/json")
+                .header("X-Forwarded-For", forwardedFor)
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        String.format("{\"username\": \"%s\", \"password\": \"password\"}", username)))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -1,36 +1,58 @@
 package ch.uzh.ifi.hase.soprafs23.controller;
 
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.Session;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.SessionPostDTO;
+import ch.uzh.ifi.hase.soprafs23.rest.dto.UserGetDTO;
 import ch.uzh.ifi.hase.soprafs23.rest.dto.UserPostDTO;
 import ch.uzh.ifi.hase.soprafs23.service.AuthService;
+import ch.uzh.ifi.hase.soprafs23.service.LoginRateLimiter;
+import ch.uzh.ifi.hase.soprafs23.service.PresenceRegistry;
+import ch.uzh.ifi.hase.soprafs23.service.UserEventHub;
 import ch.uzh.ifi.hase.soprafs23.service.UserService;
+import ch.uzh.ifi.hase.soprafs23.service.UsernameIndex;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import net.minidev.json.JSONObject;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -51,23 +73,31 @@ public class UserControllerTest {
     @MockBean
     private AuthService authService;
 
+    @MockBean
+    private PresenceRegistry presenceRegistry;
+
+    @MockBean
+    private UserEventHub userEventHub;
+
+    @MockBean
+    private LoginRateLimiter loginRateLimiter;
+
+    @MockBean
+    private UsernameIndex usernameIndex;
+
 
     @Test
     public void givenAuthUser_andUser_whenGetUsers_thenReturnJsonArray() throws Exception {
         // given
         String token = "test-token";
 
-        User user = new User();
-        user.setUsername("testUsername");
-        user.setStatus(UserStatus.OFFLINE);
-        user.setBirthday(LocalDate.now());
-        user.setCreationDate(LocalDate.now());
+        UserSummary user = new UserSummary(1L, "testUsername", UserStatus.OFFLINE, LocalDate.now(), LocalDate.now(), 0);
 
-        List<User> allUsers = Collections.singletonList(user);
+        List<UserSummary> allUsers = Collections.singletonList(user);
 
         // this mocks the UserService -> we define above what the userService should
-        // return when getUsers() is called
-        given(userService.getUsers()).willReturn(allUsers);
+        // return when getUserSummaries() is called
+        given(userService.getUserSummaries()).willReturn(allUsers);
 
         // when
         MockHttpServletRequestBuilder getRequest = get("/users")
@@ -101,6 +131,248 @@ public class UserControllerTest {
         mockMvc.perform(getRequest).andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void givenValidCredentials_whenLogin_thenReturnSessionAsync() throws Exception {
+        SessionPostDTO sessionPostDTO = new SessionPostDTO();
+        sessionPostDTO.setUsername("testUsername");
+        sessionPostDTO.setPassword("password");
+        given(authService.login(Mockito.any(Session.class)))
+                .willReturn(CompletableFuture.completedFuture(new Session("testUsername", null, 1L, "test-token")));
+
+        MvcResult result = mockMvc.perform(post("/session")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(asJsonString(sessionPostDTO)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+                .andExpect(jsonPath("$.userid", is(1)))
+                .andExpect(jsonPath("$.token", is("test-token")));
+        Mockito.verify(userService).changeStatus(1L, UserStatus.ONLINE);
+    }
+
+    @Test
+    public void givenRateLimitExceeded_whenLogin_thenThrowTOO_MANY_REQUESTS() throws Exception {
+        SessionPostDTO sessionPostDTO = new SessionPostDTO();
+        sessionPostDTO.setUsername("testUsername");
+        sessionPostDTO.setPassword("password");
+        Mockito.doThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS))
+                .when(loginRateLimiter).acquire(Mockito.eq("testUsername"), Mockito.anyString());
+
+        MockHttpServletRequestBuilder postRequest = post("/session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(asJsonString(sessionPostDTO));
+
+        mockMvc.perform(postRequest).andExpect(status().isTooManyRequests());
+        Mockito.verify(authService, Mockito.never()).login(Mockito.any(Session.class));
+    }
+
+    @Test
+    public void givenAcceptSmile_whenGetUser_thenReturnSmile() throws Exception {
+        UserSummary user = new UserSummary(1L, "testUsername", UserStatus.ONLINE, null, LocalDate.now(), 0);
+        given(userService.getUserSummaryById(1L)).willReturn(user);
+
+        MvcResult result = mockMvc.perform(get("/users/1")
+                        .header("Auth-Token", "test-token")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+
+        UserGetDTO userGetDTO = new ObjectMapper(new SmileFactory()).findAndRegisterModules()
+                .readValue(result.getResponse().getContentAsByteArray(), UserGetDTO.class);
+        assertEquals(user.getUsername(), userGetDTO.getUsername());
+        assertEquals(user.getCreationDate(), userGetDTO.getCreationDate());
+    }
+
+    @Test
+    public void givenMatchingETag_whenGetUsers_thenReturnNotModified() throws Exception {
+        given(userService.getUsersVersion()).willReturn(Optional.of("1-1-0"));
+
+        MockHttpServletRequestBuilder getRequest = get("/users")
+                .header("Auth-Token", "test-token")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-1-0\"");
+
+        mockMvc.perform(getRequest).andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-1-0\""))
+                .andExpect(content().string(""));
+        Mockito.verify(userService, Mockito.never()).getUserSummaries();
+    }
+
+    @Test
+    public void givenOutdatedETag_whenGetUser_thenReturnUserWithETag() throws Exception {
+        UserSummary user = new UserSummary(1L, "testUsername", UserStatus.ONLINE, null, LocalDate.now(), 2);
+        given(userService.getUserSummaryById(1L)).willReturn(user);
+
+        MockHttpServletRequestBuilder getRequest = get("/users/1")
+                .header("Auth-Token", "test-token")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-ONLINE\"");
+
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-ONLINE\""))
+                .andExpect(jsonPath("$.username", is(user.getUsername())));
+
+        mockMvc.perform(get("/users/1")
+                        .header("Auth-Token", "test-token")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2-ONLINE\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void givenAuthUser_andUsers_whenGetUsersPage_thenReturnPageWithCursor() throws Exception {
+        // given
+        String token = "test-token";
+
+        UserSummary first = new UserSummary(3L, "first", UserStatus.OFFLINE, null, LocalDate.now(), 0);
+        UserSummary second = new UserSummary(4L, "second", UserStatus.ONLINE, null, LocalDate.now(), 0);
+
+        given(userService.getUsersAfter(2L, 2)).willReturn(List.of(first, second));
+
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users")
+                .param("limit", "2")
+                .param("after", "2")
+                .header("Auth-Token", token);
+
+        // then
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].username", is(first.getUsername())))
+                .andExpect(jsonPath("$[1].username", is(second.getUsername())))
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "4"));
+        Mockito.verify(authService).authUser(token);
+    }
+
+    @Test
+    public void givenAuthUser_andOnlineUsers_whenGetOnlineUsers_thenReturnCountAndIds() throws Exception {
+        // given
+        String token = "test-token";
+
+        given(presenceRegistry.getOnlineUserIds(0L, 2)).willReturn(List.of(3L, 5L));
+        given(presenceRegistry.getOnlineCount()).willReturn(3);
+
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users/online")
+                .param("limit", "2")
+                .header("Auth-Token", token);
+
+        // then
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(jsonPath("$.count", is(3)))
+                .andExpect(jsonPath("$.userids", hasSize(2)))
+                .andExpect(jsonPath("$.userids[1]", is(5)))
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "5"));
+        Mockito.verify(authService).authUser(token);
+    }
+
+    @Test
+    public void givenIds_whenGetUsersByIds_thenReportEveryId() throws Exception {
+        // given
+        String token = "test-token";
+        UserSummary user = new UserSummary(1L, "testUsername", UserStatus.ONLINE, null, LocalDate.now(), 0);
+
+        given(userService.getUserSummariesByIds(Mockito.anyCollection())).willReturn(Map.of(1L, user));
+
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users")
+                .param("ids", "2,1,2")
+                .header("Auth-Token", token);
+
+        // then
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].id", is(2)))
+                .andExpect(jsonPath("$[0].status", is(404)))
+                .andExpect(jsonPath("$[1].status", is(200)))
+                .andExpect(jsonPath("$[1].user.username", is(user.getUsername())))
+                .andExpect(jsonPath("$[2].status", is(404)));
+        Mockito.verify(authService).authUser(token);
+        Mockito.verify(userService).getUserSummariesByIds(new LinkedHashSet<>(List.of(2L, 1L)));
+    }
+
+    @Test
+    public void givenTooManyRepeatedIds_whenGetUsersByIds_thenBadRequest() throws Exception {
+        // given
+        String token = "test-token";
+        String ids = String.join(",", Collections.nCopies(UserService.MAX_PAGE_SIZE + 1, "1"));
+
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users")
+                .param("ids", ids)
+                .header("Auth-Token", token);
+
+        // then
+        mockMvc.perform(getRequest).andExpect(status().isBadRequest());
+        Mockito.verify(userService, Mockito.never()).getUserSummariesByIds(Mockito.anyCollection());
+    }
+
+    @Test
+    public void givenPrefix_whenSearchUsers_thenReturnMatches() throws Exception {
+        // given
+        String token = "test-token";
+
+        given(usernameIndex.search("al", 10)).willReturn(List.of(Map.entry("alice", 4L), Map.entry("alan", 7L)));
+
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users/search")
+                .param("prefix", "al")
+                .header("Auth-Token", token);
+
+        // then
+        mockMvc.perform(getRequest).andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(4)))
+                .andExpect(jsonPath("$[0].username", is("alice")))
+                .andExpect(jsonPath("$[1].id", is(7)));
+        Mockito.verify(authService).authUser(token);
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    @Test
+    public void givenAuthUser_whenGetUserEvents_thenSubscribe() throws Exception {
+        // given
+        String token = "test-token";
+
+        given(userEventHub.subscribe()).willReturn(new SseEmitter());
+
+        // when
+        MockHttpServletRequestBuilder getRequest = get("/users/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Auth-Token", token);
+
+        // then
+        mockMvc.perform(getRequest).andExpect(request().asyncStarted());
+        Mockito.verify(authService).authUser(token);
+        Mockito.verify(userEventHub).subscribe();
+    }
+
+    @Test
+    public void givenAuthUser_andUser_whenStreamUsers_thenReturnJsonArray() throws Exception {
+        // given
+        String token = "test-token";
+
+        UserSummary user = new UserSummary(1L, "testUsername", UserStatus.OFFLINE, null, LocalDate.now(), 0);
+
+        Mockito.doAnswer(invocation -> {
+            Consumer<UserSummary> consumer = invocation.getArgument(0);
+            consumer.accept(user);
+            return null;
+        }).when(userService).streamUsers(Mockito.any());
+
+        // when
+        MvcResult result = mockMvc.perform(get("/users")
+                        .param("stream", "true")
+                        .header("Auth-Token", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[0].username", is(user.getUsername())));
+        Mockito.verify(authService).authUser(token);
+    }
 
     @Test
     public void createUser_validInput_userCreated() throws Exception {
@@ -158,14 +430,9 @@ public class UserControllerTest {
         long userid = 1;
         String token = "testToken";
 
-        User user = new User();
-        user.setId(userid);
-        user.setUsername("testUsername");
-        user.setToken("testToken");
-        user.setStatus(UserStatus.ONLINE);
-        user.setCreationDate(LocalDate.now());
+        UserSummary user = new UserSummary(userid, "testUsername", UserStatus.ONLINE, null, LocalDate.now(), 0);
 
-        Mockito.when(userService.getUserById(userid)).thenReturn(user);
+        Mockito.when(userService.getUserSummaryById(userid)).thenReturn(user);
 
         // when/then -> do the request + validate the result
         MockHttpServletRequestBuilder postRequest = get("/users/" + userid)
@@ -210,7 +477,7 @@ public class UserControllerTest {
         String token = "testToken";
 
         Mockito.doThrow(new ResponseStatusException(HttpStatus.NOT_FOUND))
-                .when(userService).getUserById(userid);
+                .when(userService).getUserSummaryById(userid);
 
         // when/then -> do the request + validate the result
         MockHttpServletRequestBuilder postRequest = get("/users/" + userid)
@@ -231,13 +498,7 @@ public class UserControllerTest {
         String token = "testToken";
         LocalDate date = LocalDate.now();
 
-        User user = new User();
-        user.setId(userid);
-        user.setUsername("testUsername");
-        user.setToken("testToken");
-        user.setBirthday(date);
-        user.setStatus(UserStatus.ONLINE);
-        user.setCreationDate(date);
+        UserSummary user = new UserSummary(userid, "testUsername", UserStatus.ONLINE, date, date, 1);
 
 
         JSONObject obj = new JSONObject();
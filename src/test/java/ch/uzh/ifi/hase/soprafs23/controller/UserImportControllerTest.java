@@ -0,0 +1,94 @@
+package ch.uzh.ifi.hase.soprafs23.controller;
+
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.service.AuthService;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportResult;
+import ch.uzh.ifi.hase.soprafs23.service.UserImportService;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * UserImportControllerTest
+ * This is a WebMvcTest which allows to test the UserImportController without
+ * actually sending requests over the network.
+ */
+@WebMvcTest(UserImportController.class)
+public class UserImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AuthService authService;
+
+    @MockBean
+    private UserImportService userImportService;
+
+    @Test
+    public void givenAuthUser_whenImportJson_thenStreamResults() throws Exception {
+        // given
+        String token = "test-token";
+
+        given(userImportService.importUsers(Mockito.anyList())).willReturn(List.of(
+                UserImportResult.created("first", 1L),
+                UserImportResult.rejected("second", HttpStatus.CONFLICT, "The username provided is not unique.")));
+
+        // when
+        MockHttpServletRequestBuilder postRequest = post("/users/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"username\":\"first\",\"password\":\"password\"}\n"
+                        + "{\"username\":\"second\",\"password\":\"password\"}\n")
+                .header("Auth-Token", token);
+
+        // then
+        MvcResult result = mockMvc.perform(postRequest).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"index\":1,\"username\":\"first\",\"status\":201,\"id\":1}\n"
+                        + "{\"index\":2,\"username\":\"second\",\"status\":409,\"message\":\"The username provided is not unique.\"}\n"));
+        Mockito.verify(authService).authUser(token);
+    }
+
+    @Test
+    public void givenAuthUser_whenImportCsv_thenImportRecords() throws Exception {
+        // given
+        String token = "test-token";
+
+        given(userImportService.importUsers(Mockito.anyList())).willReturn(List.of(UserImportResult.created("first", 1L)));
+
+        // when
+        MockHttpServletRequestBuilder postRequest = post("/users/import")
+                .contentType(UserImportController.TEXT_CSV_VALUE)
+                .content("username,password\nfirst,password\n")
+                .header("Auth-Token", token);
+
+        // then
+        MvcResult result = mockMvc.perform(postRequest).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<User>> users = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(userImportService).importUsers(users.capture());
+        assertEquals(1, users.getValue().size());
+    }
+}
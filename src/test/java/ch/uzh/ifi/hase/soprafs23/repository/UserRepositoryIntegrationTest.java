@@ -4,13 +4,18 @@ import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DataJpaTest
 public class UserRepositoryIntegrationTest {
@@ -21,6 +26,9 @@ public class UserRepositoryIntegrationTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Value("${spring.jpa.properties.user.id.allocation_size}")
+    private int allocationSize;
+
     @Test
     public void findByName_success() {
         // given
@@ -48,4 +56,77 @@ public class UserRepositoryIntegrationTest {
         assertEquals(found.getCreationDate(), user.getCreationDate());
 
     }
+
+    @Test
+    public void findSummaryById_success() {
+        // given
+        User user = new User();
+        user.setPassword("hash");
+        user.setUsername("firstname@lastname");
+        user.setStatus(UserStatus.ONLINE);
+        user.setToken("1");
+        user.setCreationDate(LocalDate.now());
+        user.setBirthday(LocalDate.parse("1998-12-12"));
+
+        entityManager.persist(user);
+        entityManager.flush();
+
+        // when
+        UserSummary found = userRepository.findSummaryById(user.getId()).orElseThrow();
+
+        // then
+        assertEquals(found.getId(), user.getId());
+        assertEquals(found.getUsername(), user.getUsername());
+        assertEquals(found.getStatus(), user.getStatus());
+        assertEquals(found.getBirthday(), user.getBirthday());
+        assertEquals(found.getCreationDate(), user.getCreationDate());
+    }
+
+    @Test
+    public void findByName_afterRename_success() {
+        // given
+        User user = new User();
+        user.setPassword("hash");
+        user.setUsername("firstname@lastname");
+        user.setStatus(UserStatus.OFFLINE);
+        user.setToken("1");
+        user.setCreationDate(LocalDate.now());
+
+        entityManager.persist(user);
+        entityManager.flush();
+        userRepository.findByUsername(user.getUsername());
+
+        // when
+        user.setUsername("lastname@firstname");
+        entityManager.flush();
+
+        // then
+        assertNull(userRepository.findByUsername("firstname@lastname"));
+        assertEquals(user.getId(), userRepository.findByUsername("lastname@firstname").getId());
+    }
+
+    @Test
+    public void persist_moreUsersThanOneIdBlock_uniqueIncreasingIds() {
+        // given
+        List<Long> ids = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 2 * allocationSize + 1; i++) {
+            User user = new User();
+            user.setPassword("hash");
+            user.setUsername("user" + i);
+            user.setStatus(UserStatus.OFFLINE);
+            user.setToken("token" + i);
+            user.setCreationDate(LocalDate.now());
+            entityManager.persist(user);
+            ids.add(user.getId());
+        }
+        entityManager.flush();
+
+        // then
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i) > ids.get(i - 1));
+        }
+        assertEquals(ids.size(), userRepository.count());
+    }
 }
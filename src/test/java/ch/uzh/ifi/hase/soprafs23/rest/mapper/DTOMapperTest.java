@@ -2,6 +2,7 @@ package ch.uzh.ifi.hase.soprafs23.rest.mapper;
 
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
 import ch.uzh.ifi.hase.soprafs23.rest.dto.UserGetDTO;
 import ch.uzh.ifi.hase.soprafs23.rest.dto.UserPostDTO;
 import org.junit.jupiter.api.Test;
@@ -53,4 +54,21 @@ public class DTOMapperTest {
         assertEquals(user.getCreationDate(), userGetDTO.getCreationDate());
 
     }
-}
+
+    @Test
+    public void testGetUser_fromUserSummary_toUserGetDTO_success() {
+        // create UserSummary
+        UserSummary userSummary = new UserSummary(1L, "firstname@lastname", UserStatus.ONLINE,
+                LocalDate.parse("1998-12-12"), LocalDate.now(), 0);
+
+        // MAP -> Create UserGetDTO
+        UserGetDTO userGetDTO = DTOMapper.INSTANCE.convertUserSummaryToUserGetDTO(userSummary);
+
+        // check content
+        assertEquals(userSummary.getId(), userGetDTO.getId());
+        assertEquals(userSummary.getUsername(), userGetDTO.getUsername());
+        assertEquals(userSummary.getStatus(), userGetDTO.getStatus());
+        assertEquals(userSummary.getBirthday(), userGetDTO.getBirthday());
+        assertEquals(userSummary.getCreationDate(), userGetDTO.getCreationDate());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,124 @@
+package ch.uzh.ifi.hase.soprafs23.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffloadingPasswordEncoderTest {
+
+    private final PasswordEncoder delegate = Mockito.mock(PasswordEncoder.class);
+
+    private OffloadingPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    public void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void encode_runsOnHashingThread() {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 1, 1, Duration.ofSeconds(5));
+        Mockito.when(delegate.encode("password")).thenAnswer(invocation -> Thread.currentThread().getName());
+
+        String threadName = passwordEncoder.encode("password");
+
+        assertTrue(threadName.startsWith("password-hashing-"));
+    }
+
+    @Test
+    public void matches_delegateThrows_rethrowsCause() {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 1, 1, Duration.ofSeconds(5));
+        Mockito.when(delegate.matches("password", "hash")).thenThrow(new IllegalArgumentException());
+
+        assertThrows(IllegalArgumentException.class, () -> passwordEncoder.matches("password", "hash"));
+    }
+
+    @Test
+    public void encode_queueFull_throwsServiceUnavailable() throws Exception {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 1, 1, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(delegate.encode("blocking")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+
+        // occupy the only thread and the only queue slot
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("blocking"));
+        started.await();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("blocking"));
+        while (passwordEncoder.getQueueSize() == 0) {
+            Thread.onSpinWait();
+        }
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> passwordEncoder.encode("password"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+
+        release.countDown();
+        assertEquals("hash", running.get());
+        assertEquals("hash", queued.get());
+    }
+
+    @Test
+    public void encode_timeout_throwsServiceUnavailable() {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 1, 1, Duration.ofMillis(10));
+        Mockito.when(delegate.encode("password")).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return "hash";
+        });
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> passwordEncoder.encode("password"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    @Test
+    public void matchesAsync_doesNotBlockCaller() throws Exception {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 1, 1, Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(delegate.matches("password", "hash")).thenAnswer(invocation -> {
+            release.await();
+            return true;
+        });
+
+        CompletableFuture<Boolean> matches = passwordEncoder.matchesAsync("password", "hash");
+        assertFalse(matches.isDone());
+        release.countDown();
+
+        assertTrue(matches.get());
+    }
+
+    @Test
+    public void encodeAsync_timeout_failsServiceUnavailable() {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 1, 1, Duration.ofMillis(10));
+        Mockito.when(delegate.encode("password")).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return "hash";
+        });
+
+        CompletionException exception = assertThrows(CompletionException.class, () -> passwordEncoder.encodeAsync("password").join());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((ResponseStatusException) exception.getCause()).getStatus());
+    }
+
+    @Test
+    public void encodeAll_hashesInParallel_keepsOrder() {
+        passwordEncoder = new OffloadingPasswordEncoder(delegate, 2, 1, Duration.ofSeconds(5));
+        Mockito.when(delegate.encode(Mockito.anyString()))
+                .thenAnswer(invocation -> "hash-" + invocation.getArgument(0));
+
+        List<String> encodedPasswords = passwordEncoder.encodeAll(List.of("a", "b", "c", "d", "e"));
+
+        assertEquals(List.of("hash-a", "hash-b", "hash-c", "hash-d", "hash-e"), encodedPasswords);
+    }
+}
@@ -0,0 +1,30 @@
+package ch.uzh.ifi.hase.soprafs23.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimedPasswordEncoderTest {
+
+    private final PasswordEncoder delegate = Mockito.mock(PasswordEncoder.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void encodeAndMatches_recordedPerOperation() {
+        Mockito.when(delegate.encode("password")).thenReturn("hash");
+        Mockito.when(delegate.matches("password", "hash")).thenReturn(true);
+        PasswordEncoder passwordEncoder = new TimedPasswordEncoder(delegate, meterRegistry);
+
+        assertEquals("hash", passwordEncoder.encode("password"));
+        assertTrue(passwordEncoder.matches("password", "hash"));
+        assertTrue(passwordEncoder.matches("password", "hash"));
+
+        assertEquals(1, meterRegistry.get(TimedPasswordEncoder.TIMER_NAME).tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get(TimedPasswordEncoder.TIMER_NAME).tag("operation", "matches").timer().count());
+    }
+}
@@ -0,0 +1,156 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.entity.Session;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.security.OffloadingPasswordEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthServiceTest {
+
+    private UserRepository userRepository;
+
+    private InMemoryTokenStore tokenStore;
+
+    private PasswordEncoder passwordEncoder;
+
+    private AuthService authService;
+
+    private User testUser;
+
+    @BeforeEach
+    public void setup() {
+        userRepository = Mockito.mock(UserRepository.class);
+        tokenStore = new InMemoryTokenStore(10, Duration.ofHours(1));
+        passwordEncoder = Mockito.mock(PasswordEncoder.class);
+        authService = new AuthService(userRepository, passwordEncoder, tokenStore, Mockito.mock(PresenceRegistry.class), Runnable::run);
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testUsername");
+        testUser.setToken("testToken");
+        testUser.setPassword("hash");
+
+        Mockito.when(userRepository.findByToken("testToken")).thenReturn(Optional.of(testUser));
+    }
+
+    @Test
+    public void authUser_validToken_lookedUpOnlyOnce() {
+        authService.authUser("testToken");
+        authService.authUser("testToken");
+
+        Mockito.verify(userRepository, Mockito.times(1)).findByToken("testToken");
+        Mockito.verify(userRepository, Mockito.never()).findAll();
+        assertEquals(Optional.of(1L), tokenStore.findUserId("testToken"));
+    }
+
+    @Test
+    public void authUser_unknownToken_throwsException() {
+        Mockito.when(userRepository.findByToken("unknown")).thenReturn(Optional.empty());
+
+        assertThrows(ResponseStatusException.class, () -> authService.authUser("unknown"));
+        assertTrue(tokenStore.findUserId("unknown").isEmpty());
+    }
+
+    @Test
+    public void authUserForUserId_tokenOfOtherUser_throwsException() {
+        authService.authUser("testToken");
+
+        assertThrows(ResponseStatusException.class, () -> authService.authUserForUserId("testToken", 2L));
+        Mockito.verify(userRepository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    public void logout_validToken_evictsToken() {
+        authService.authUser("testToken");
+
+        long userid = authService.logout("testToken");
+
+        assertEquals(1L, userid);
+        assertTrue(tokenStore.findUserId("testToken").isEmpty());
+    }
+
+    @Test
+    public void login_outdatedHash_rehashesPassword() {
+        Mockito.when(userRepository.findByUsername("testUsername")).thenReturn(testUser);
+        Mockito.when(passwordEncoder.matches("password", "hash")).thenReturn(true);
+        Mockito.when(passwordEncoder.upgradeEncoding("hash")).thenReturn(true);
+        Mockito.when(passwordEncoder.encode("password")).thenReturn("newHash");
+
+        Session session = authService.login(new Session("testUsername", "password", 0, null)).join();
+
+        assertEquals("testToken", session.getToken());
+        Mockito.verify(userRepository).updatePassword(1L, "newHash");
+        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
+    }
+
+    @Test
+    public void login_wrongPassword_throwsException() {
+        Mockito.when(userRepository.findByUsername("testUsername")).thenReturn(testUser);
+        Mockito.when(passwordEncoder.matches("wrong", "hash")).thenReturn(false);
+
+        CompletionException exception = assertThrows(CompletionException.class,
+                () -> authService.login(new Session("testUsername", "wrong", 0, null)).join());
+        assertInstanceOf(ResponseStatusException.class, exception.getCause());
+        Mockito.verify(passwordEncoder, Mockito.never()).upgradeEncoding(Mockito.any());
+    }
+
+    @Test
+    public void login_signedTokens_authenticatedWithoutDatabase() {
+        SignedTokenStore signedTokenStore = new SignedTokenStore(null, Duration.ofHours(1));
+        authService = new AuthService(userRepository, passwordEncoder, signedTokenStore, Mockito.mock(PresenceRegistry.class), Runnable::run);
+        Mockito.when(userRepository.findByUsername("testUsername")).thenReturn(testUser);
+        Mockito.when(passwordEncoder.matches("password", "hash")).thenReturn(true);
+
+        String token = authService.login(new Session("testUsername", "password", 0, null)).join().getToken();
+        authService.authUser(token);
+        authService.authUserForUserId(token, 1L);
+
+        assertNotEquals("testToken", token);
+        assertThrows(ResponseStatusException.class, () -> authService.authUser("testToken"));
+        assertEquals(1L, authService.logout(token));
+        assertThrows(ResponseStatusException.class, () -> authService.authUserForUserId(token, 1L));
+        Mockito.verify(userRepository, Mockito.never()).findByToken(Mockito.any());
+        Mockito.verify(userRepository, Mockito.never()).findById(Mockito.anyLong());
+    }
+
+    @Test
+    public void login_offloadedHashing_continuedOffHashingPool() {
+        OffloadingPasswordEncoder offloadingEncoder = new OffloadingPasswordEncoder(passwordEncoder, 1, 1, Duration.ofSeconds(5));
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "continuation"));
+        authService = new AuthService(userRepository, offloadingEncoder, tokenStore, Mockito.mock(PresenceRegistry.class), executor);
+        Mockito.when(userRepository.findByUsername("testUsername")).thenReturn(testUser);
+        Mockito.when(passwordEncoder.matches("password", "hash")).thenReturn(true);
+        Mockito.when(passwordEncoder.upgradeEncoding("hash")).thenReturn(true);
+        Mockito.when(passwordEncoder.encode("password")).thenReturn("newHash");
+        AtomicReference<String> updatingThread = new AtomicReference<>();
+        Mockito.when(userRepository.updatePassword(1L, "newHash")).thenAnswer(invocation -> {
+            updatingThread.set(Thread.currentThread().getName());
+            return 1;
+        });
+
+        try {
+            Session session = authService.login(new Session("testUsername", "password", 0, null)).join();
+
+            assertEquals("testToken", session.getToken());
+            assertEquals("continuation", updatingThread.get());
+        }
+        finally {
+            executor.shutdown();
+            offloadingEncoder.destroy();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryTokenStoreTest {
+
+    private Clock clock;
+
+    private InMemoryTokenStore tokenStore;
+
+    @BeforeEach
+    public void setup() {
+        clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.millis()).thenReturn(0L);
+
+        tokenStore = new InMemoryTokenStore(2, Duration.ofMillis(100), clock);
+    }
+
+    @Test
+    public void findUserId_knownToken_hit() {
+        tokenStore.put("token", 1L);
+
+        assertEquals(Optional.of(1L), tokenStore.findUserId("token"));
+        assertEquals(1, tokenStore.getHitCount());
+        assertEquals(0, tokenStore.getMissCount());
+    }
+
+    @Test
+    public void findUserId_unknownToken_miss() {
+        assertTrue(tokenStore.findUserId("token").isEmpty());
+        assertTrue(tokenStore.findUserId(null).isEmpty());
+        assertEquals(2, tokenStore.getMissCount());
+    }
+
+    @Test
+    public void findUserId_expiredToken_evicted() {
+        tokenStore.put("token", 1L);
+        Mockito.when(clock.millis()).thenReturn(100L);
+
+        assertTrue(tokenStore.findUserId("token").isEmpty());
+        assertEquals(1, tokenStore.getEvictionCount());
+        assertEquals(0, tokenStore.size());
+    }
+
+    @Test
+    public void evictExpired_removesOnlyExpiredTokens() {
+        tokenStore.put("old", 1L);
+        Mockito.when(clock.millis()).thenReturn(50L);
+        tokenStore.put("new", 2L);
+        Mockito.when(clock.millis()).thenReturn(120L);
+
+        tokenStore.evictExpired();
+
+        assertEquals(1, tokenStore.size());
+        assertEquals(Optional.of(2L), tokenStore.findUserId("new"));
+    }
+
+    @Test
+    public void put_full_staysBounded() {
+        tokenStore.put("first", 1L);
+        tokenStore.put("second", 2L);
+        tokenStore.put("third", 3L);
+
+        assertEquals(2, tokenStore.size());
+        assertEquals(1, tokenStore.getEvictionCount());
+    }
+
+    @Test
+    public void remove_knownToken_forgotten() {
+        tokenStore.put("token", 1L);
+        tokenStore.remove("token");
+
+        assertTrue(tokenStore.findUserId("token").isEmpty());
+    }
+}
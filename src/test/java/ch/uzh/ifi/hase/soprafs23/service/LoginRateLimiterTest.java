@@ -0,0 +1,66 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoginRateLimiterTest {
+
+    private Clock clock;
+
+    private LoginRateLimiter loginRateLimiter;
+
+    @BeforeEach
+    public void setup() {
+        clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.millis()).thenReturn(0L);
+        loginRateLimiter = new LoginRateLimiter(2, Duration.ofSeconds(10), 3, Duration.ofSeconds(1), 10, clock);
+    }
+
+    @Test
+    public void acquire_usernameOverQuota_rejectedUntilRefilled() {
+        loginRateLimiter.acquire("testUsername", "10.0.0.1");
+        loginRateLimiter.acquire("testUsername", "10.0.0.2");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> loginRateLimiter.acquire("testUsername", "10.0.0.3"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+
+        Mockito.when(clock.millis()).thenReturn(10_000L);
+        loginRateLimiter.acquire("testUsername", "10.0.0.3");
+
+        assertEquals(3, loginRateLimiter.getAllowedCount());
+        assertEquals(1, loginRateLimiter.getRejectedCount());
+    }
+
+    @Test
+    public void acquire_addressOverQuota_rejectedForAnyUsername() {
+        loginRateLimiter.acquire("first", "10.0.0.1");
+        loginRateLimiter.acquire("second", "10.0.0.1");
+        loginRateLimiter.acquire("third", "10.0.0.1");
+
+        assertThrows(ResponseStatusException.class, () -> loginRateLimiter.acquire("fourth", "10.0.0.1"));
+        loginRateLimiter.acquire("fourth", "10.0.0.2");
+    }
+
+    @Test
+    public void evictFull_refilledBuckets_removed() {
+        loginRateLimiter.acquire("testUsername", "10.0.0.1");
+        assertEquals(2, loginRateLimiter.size());
+
+        Mockito.when(clock.millis()).thenReturn(5_000L);
+        loginRateLimiter.evictFull();
+        assertEquals(1, loginRateLimiter.size());
+
+        Mockito.when(clock.millis()).thenReturn(10_000L);
+        loginRateLimiter.evictFull();
+        assertEquals(0, loginRateLimiter.size());
+    }
+}
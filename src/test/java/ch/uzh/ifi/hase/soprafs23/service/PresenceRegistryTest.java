@@ -0,0 +1,85 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PresenceRegistryTest {
+
+    private Clock clock;
+
+    private UserStatusBuffer statusBuffer;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private PresenceRegistry presenceRegistry;
+
+    @BeforeEach
+    public void setup() {
+        clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.millis()).thenReturn(0L);
+        statusBuffer = Mockito.mock(UserStatusBuffer.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+
+        presenceRegistry = new PresenceRegistry(statusBuffer, eventPublisher, Duration.ofMillis(100), clock);
+    }
+
+    @Test
+    public void markOnline_twice_countedOnce() {
+        presenceRegistry.markOnline(1L);
+        presenceRegistry.markOnline(1L);
+        presenceRegistry.markOnline(2L);
+
+        assertEquals(2, presenceRegistry.getOnlineCount());
+        assertTrue(presenceRegistry.isOnline(1L));
+    }
+
+    @Test
+    public void markOffline_removesUser() {
+        presenceRegistry.markOnline(1L);
+        presenceRegistry.markOffline(1L);
+        presenceRegistry.markOffline(2L);
+
+        assertEquals(0, presenceRegistry.getOnlineCount());
+        assertFalse(presenceRegistry.isOnline(1L));
+        assertTrue(presenceRegistry.getOnlineUserIds(0, 10).isEmpty());
+    }
+
+    @Test
+    public void getOnlineUserIds_pagesInIdOrder() {
+        for (long userid : List.of(5L, 1L, 3L, 4L)) {
+            presenceRegistry.markOnline(userid);
+        }
+
+        assertEquals(List.of(1L, 3L), presenceRegistry.getOnlineUserIds(0, 2));
+        assertEquals(List.of(4L, 5L), presenceRegistry.getOnlineUserIds(3, 2));
+        assertThrows(ResponseStatusException.class, () -> presenceRegistry.getOnlineUserIds(0, 0));
+    }
+
+    @Test
+    public void expireInactive_withoutHeartbeat_markedOffline() {
+        presenceRegistry.markOnline(1L);
+        presenceRegistry.markOnline(2L);
+        Mockito.when(clock.millis()).thenReturn(80L);
+        presenceRegistry.heartbeat(2L);
+        presenceRegistry.heartbeat(3L);
+        Mockito.when(clock.millis()).thenReturn(150L);
+
+        presenceRegistry.expireInactive();
+
+        assertEquals(1, presenceRegistry.getOnlineCount());
+        assertEquals(List.of(2L), presenceRegistry.getOnlineUserIds(0, 10));
+        Mockito.verify(statusBuffer).record(1L, UserStatus.OFFLINE);
+        Mockito.verifyNoMoreInteractions(statusBuffer);
+        Mockito.verify(eventPublisher).publishEvent(Mockito.any(UserChangedEvent.class));
+    }
+}
@@ -0,0 +1,96 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SignedTokenStoreTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private Clock clock;
+
+    private SignedTokenStore tokenStore;
+
+    @BeforeEach
+    public void setup() {
+        clock = Mockito.mock(Clock.class);
+        Mockito.when(clock.millis()).thenReturn(0L);
+
+        tokenStore = new SignedTokenStore(SECRET, Duration.ofMillis(100), clock);
+    }
+
+    @Test
+    public void findUserId_issuedToken_verified() {
+        String token = tokenStore.issue(42L, "storedToken");
+
+        assertEquals(Optional.of(42L), tokenStore.findUserId(token));
+        assertEquals(Optional.of(42L), new SignedTokenStore(SECRET, Duration.ofMillis(100), clock).findUserId(token));
+    }
+
+    @Test
+    public void findUserId_tamperedOrForeignToken_rejected() {
+        String token = tokenStore.issue(42L, "storedToken");
+        String tampered = "43" + token.substring(2);
+        String foreignSecret = Base64.getEncoder().encodeToString(new byte[]{
+                1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32});
+
+        assertTrue(tokenStore.findUserId(tampered).isEmpty());
+        assertTrue(tokenStore.findUserId("storedToken").isEmpty());
+        assertTrue(tokenStore.findUserId(null).isEmpty());
+        assertTrue(new SignedTokenStore(foreignSecret, Duration.ofMillis(100), clock).findUserId(token).isEmpty());
+    }
+
+    @Test
+    public void findUserId_expiredToken_rejected() {
+        String token = tokenStore.issue(42L, "storedToken");
+
+        Mockito.when(clock.millis()).thenReturn(100L);
+
+        assertTrue(tokenStore.findUserId(token).isEmpty());
+    }
+
+    @Test
+    public void remove_issuedToken_revokedUntilExpired() {
+        String token = tokenStore.issue(42L, "storedToken");
+        String otherToken = tokenStore.issue(43L, "otherToken");
+
+        tokenStore.remove(token);
+        tokenStore.remove("storedToken");
+
+        assertTrue(tokenStore.findUserId(token).isEmpty());
+        assertEquals(Optional.of(43L), tokenStore.findUserId(otherToken));
+        assertEquals(1, tokenStore.getRevokedCount());
+
+        Mockito.when(clock.millis()).thenReturn(100L);
+        tokenStore.evictExpired();
+        assertEquals(0, tokenStore.getRevokedCount());
+    }
+
+    @Test
+    public void findUserId_concurrentVirtualThreads_verified() throws Exception {
+        List<Future<Optional<Long>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long userid = 0; userid < 1000; userid++) {
+                long id = userid;
+                results.add(executor.submit(() -> tokenStore.findUserId(tokenStore.issue(id, "storedToken"))));
+            }
+        }
+
+        for (int userid = 0; userid < results.size(); userid++) {
+            assertEquals(Optional.of((long) userid), results.get(userid).get());
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserEventHubTest {
+
+    private UserEventHub userEventHub;
+
+    @BeforeEach
+    public void setup() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        userEventHub = new UserEventHub(objectMapper, 1, Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void teardown() throws InterruptedException {
+        userEventHub.destroy();
+    }
+
+    @Test
+    public void onUserChanged_subscriber_receivesDiffsInOrder() throws InterruptedException {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        userEventHub.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                received.add(builder.build().stream()
+                        .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                        .map(Object::toString)
+                        .collect(Collectors.joining()));
+            }
+        });
+
+        userEventHub.onUserChanged(UserChangedEvent.statusChanged(1L, UserStatus.ONLINE));
+        String first = received.poll(5, TimeUnit.SECONDS);
+        userEventHub.onUserChanged(new UserChangedEvent(1L, "newUsername", null, LocalDate.parse("1998-12-12")));
+        String second = received.poll(5, TimeUnit.SECONDS);
+
+        assertNotNull(first);
+        assertTrue(first.contains("{\"id\":1,\"status\":\"ONLINE\"}"));
+        assertNotNull(second);
+        assertTrue(second.contains("{\"id\":1,\"username\":\"newUsername\",\"birthday\":\"1998-12-12\"}"));
+    }
+
+    @Test
+    public void onUserChanged_slowSubscriber_dropped() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        userEventHub.subscribe(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                sending.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+
+        userEventHub.onUserChanged(UserChangedEvent.statusChanged(1L, UserStatus.ONLINE));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        for (long userid : List.of(2L, 3L)) {
+            userEventHub.onUserChanged(UserChangedEvent.statusChanged(userid, UserStatus.ONLINE));
+        }
+        release.countDown();
+
+        assertEquals(1, userEventHub.getDroppedCount());
+        assertEquals(0, userEventHub.getSubscriberCount());
+    }
+
+    @Test
+    public void onUserChanged_subscriberBlockedInSend_publisherNotBlocked() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        userEventHub.subscribe(new SseEmitter() {
+            // holds the lock of the emitter like a send writing to a slow client
+            @Override
+            public synchronized void send(SseEventBuilder builder) throws IOException {
+                sending.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                super.send(builder);
+            }
+
+            @Override
+            public synchronized void complete() {
+                super.complete();
+                completed.countDown();
+            }
+        });
+
+        userEventHub.onUserChanged(UserChangedEvent.statusChanged(1L, UserStatus.ONLINE));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // fills the queue and drops the subscriber while its send is blocked
+        CompletableFuture<Void> publishing = CompletableFuture.runAsync(() -> {
+            for (long userid : List.of(2L, 3L)) {
+                userEventHub.onUserChanged(UserChangedEvent.statusChanged(userid, UserStatus.ONLINE));
+            }
+        });
+        publishing.get(5, TimeUnit.SECONDS);
+        assertEquals(1, userEventHub.getDroppedCount());
+        assertEquals(1, completed.getCount());
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+    }
+}
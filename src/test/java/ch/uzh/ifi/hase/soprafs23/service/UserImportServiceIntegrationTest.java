@@ -0,0 +1,78 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.entity.User;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the bulk import of users.
+ *
+ * @see UserImportService
+ */
+@WebAppConfiguration
+@SpringBootTest
+public class UserImportServiceIntegrationTest {
+
+    @Qualifier("userRepository")
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @BeforeEach
+    public void setup() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void importUsers_validInputs_allCreated() {
+        List<UserImportResult> results = userImportService.importUsers(List.of(
+                newUser("first", "password"), newUser("second", "password")));
+
+        assertEquals(List.of(HttpStatus.CREATED, HttpStatus.CREATED),
+                results.stream().map(UserImportResult::getStatus).collect(Collectors.toList()));
+
+        User created = userRepository.findById(results.get(1).getId()).orElseThrow();
+        assertEquals("second", created.getUsername());
+        assertNotEquals("password", created.getPassword());
+        assertNotNull(created.getToken());
+        assertEquals(UserStatus.OFFLINE, created.getStatus());
+        assertNotNull(created.getCreationDate());
+    }
+
+    @Test
+    public void importUsers_invalidAndDuplicateInputs_rejected() {
+        userImportService.importUsers(List.of(newUser("existing", "password")));
+
+        List<UserImportResult> results = userImportService.importUsers(List.of(
+                newUser("existing", "password"),
+                newUser("new", "password"),
+                newUser("new", "password"),
+                newUser(" ", "password"),
+                newUser("other", null)));
+
+        assertEquals(List.of(HttpStatus.CONFLICT, HttpStatus.CREATED, HttpStatus.CONFLICT, HttpStatus.BAD_REQUEST, HttpStatus.BAD_REQUEST),
+                results.stream().map(UserImportResult::getStatus).collect(Collectors.toList()));
+        assertEquals(2, userRepository.count());
+    }
+
+    private User newUser(String username, String password) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        return user;
+    }
+}
@@ -3,14 +3,27 @@ package ch.uzh.ifi.hase.soprafs23.service;
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
 import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -29,6 +42,15 @@ public class UserServiceIntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserStatusBuffer statusBuffer;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     public void setup() {
         userRepository.deleteAll();
@@ -68,10 +90,258 @@ public class UserServiceIntegrationTest {
         User testUser2 = new User();
 
         // change the name but forget about the username
-        testUser.setPassword("hash");
+        testUser2.setPassword("hash");
         testUser2.setUsername("testUsername");
 
         // check that an error is thrown
-        assertThrows(ResponseStatusException.class, () -> userService.createUser(testUser2));
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> userService.createUser(testUser2));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    public void getUsersAfter_cursor_returnsNextPage() {
+        List<User> createdUsers = new ArrayList<>();
+        for (String username : List.of("first", "second", "third")) {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("hash");
+            createdUsers.add(userService.createUser(user));
+        }
+
+        List<UserSummary> firstPage = userService.getUsersAfter(0, 2);
+        List<UserSummary> secondPage = userService.getUsersAfter(firstPage.get(1).getId(), 2);
+
+        assertEquals(2, firstPage.size());
+        assertEquals(createdUsers.get(0).getId(), firstPage.get(0).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(createdUsers.get(2).getId(), secondPage.get(0).getId());
+        assertThrows(ResponseStatusException.class, () -> userService.getUsersAfter(0, 0));
+    }
+
+    @Test
+    public void getUserSummariesByIds_missingIds_omitted() {
+        List<Long> ids = new ArrayList<>();
+        for (String username : List.of("first", "second", "third")) {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("hash");
+            ids.add(userService.createUser(user).getId());
+        }
+        userService.changeStatus(ids.get(2), UserStatus.ONLINE);
+
+        Map<Long, UserSummary> users = userService.getUserSummariesByIds(List.of(ids.get(0), ids.get(2), -1L));
+
+        assertEquals(Set.of(ids.get(0), ids.get(2)), users.keySet());
+        assertEquals("first", users.get(ids.get(0)).getUsername());
+        assertEquals(UserStatus.ONLINE, users.get(ids.get(2)).getStatus());
+        assertThrows(ResponseStatusException.class, () -> userService.getUserSummariesByIds(List.of()));
+        statusBuffer.flush();
+    }
+
+    @Test
+    public void streamUsers_allUsersInIdOrder() {
+        for (String username : List.of("first", "second")) {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("hash");
+            userService.createUser(user);
+        }
+
+        List<String> usernames = new ArrayList<>();
+        userService.streamUsers(user -> usernames.add(user.getUsername()));
+
+        assertEquals(List.of("first", "second"), usernames);
+    }
+
+    @Test
+    public void changeStatus_readBeforeAndAfterFlush() {
+        User user = new User();
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        long id = userService.createUser(user).getId();
+
+        userService.changeStatus(id, UserStatus.OFFLINE);
+        userService.changeStatus(id, UserStatus.ONLINE);
+
+        assertEquals(UserStatus.ONLINE, userService.getUserSummaryById(id).getStatus());
+
+        statusBuffer.flush();
+
+        assertEquals(0, statusBuffer.size());
+        assertEquals(UserStatus.ONLINE, userRepository.findById(id).orElseThrow().getStatus());
+        assertEquals(UserStatus.ONLINE, userService.getUserSummaryById(id).getStatus());
+    }
+
+    @Test
+    public void updateUser_cachedUser_returnsUpdatedUser() {
+        User user = new User();
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        long id = userService.createUser(user).getId();
+        userService.getUserById(id);
+
+        User userInput = new User();
+        userInput.setUsername("newUsername");
+        userService.updateUser(userInput, id);
+
+        assertEquals("newUsername", userService.getUserById(id).getUsername());
+        assertNull(userRepository.findByUsername("testUsername"));
+        assertEquals(id, userRepository.findByUsername("newUsername").getId());
+    }
+
+    @Test
+    public void getUserById_secondLookup_servedFromCache() {
+        User user = new User();
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        long id = userService.createUser(user).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        userService.getUserById(id);
+        long hits = statistics.getSecondLevelCacheHitCount();
+        userService.getUserById(id);
+        userRepository.findByUsername("testUsername");
+
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= hits + 2);
+    }
+
+    @Test
+    public void flush_unrelatedCachedUser_stillServedFromCache() {
+        long cachedId = 0;
+        long flushedId = 0;
+        for (String username : List.of("cached", "flushed")) {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("hash");
+            long id = userService.createUser(user).getId();
+            if (username.equals("cached")) {
+                cachedId = id;
+            }
+            else {
+                flushedId = id;
+            }
+        }
+        userService.getUserById(cachedId);
+        userService.getUserById(flushedId);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        userService.changeStatus(flushedId, UserStatus.ONLINE);
+        statusBuffer.flush();
+        long hits = statistics.getSecondLevelCacheHitCount();
+        userService.getUserById(cachedId);
+        userRepository.findByUsername("cached");
+
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= hits + 2);
+        assertEquals(UserStatus.ONLINE, userRepository.findById(flushedId).orElseThrow().getStatus());
+        assertEquals(1, userRepository.findById(flushedId).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void updatePassword_otherCachedUsers_stillServedFromCache() {
+        List<Long> ids = new ArrayList<>();
+        for (String username : List.of("cached", "rehashed")) {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("hash");
+            ids.add(userService.createUser(user).getId());
+            userService.getUserById(ids.get(ids.size() - 1));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        assertEquals(1, userRepository.updatePassword(ids.get(1), "newHash"));
+        long hits = statistics.getSecondLevelCacheHitCount();
+        userService.getUserById(ids.get(0));
+        userRepository.findByUsername("cached");
+
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= hits + 2);
+        assertEquals("newHash", userService.getUserById(ids.get(1)).getPassword());
+        assertEquals(0, userService.getUserById(ids.get(1)).getVersion());
+    }
+
+    @Test
+    public void updateUser_takenUsername_throwsConflict() {
+        for (String username : List.of("first", "second")) {
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword("hash");
+            userService.createUser(user);
+        }
+        long id = userRepository.findByUsername("second").getId();
+
+        User userInput = new User();
+        userInput.setUsername("first");
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> userService.updateUser(userInput, id));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals("second", userService.getUserById(id).getUsername());
+    }
+
+    @Test
+    public void getUsersVersion_changesWithEveryWrite() {
+        String emptyVersion = userService.getUsersVersion().orElseThrow();
+
+        User user = new User();
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        long id = userService.createUser(user).getId();
+        String createdVersion = userService.getUsersVersion().orElseThrow();
+        assertEquals(createdVersion, userService.getUsersVersion().orElseThrow());
+
+        userService.changeStatus(id, UserStatus.ONLINE);
+        assertTrue(userService.getUsersVersion().isEmpty());
+        statusBuffer.flush();
+        String updatedVersion = userService.getUsersVersion().orElseThrow();
+
+        assertNotEquals(emptyVersion, createdVersion);
+        assertNotEquals(createdVersion, updatedVersion);
+        assertEquals(1, userService.getUserSummaryById(id).getVersion());
+    }
+
+    @Test
+    public void flush_unchangedStatus_versionUnchanged() {
+        User user = new User();
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        long id = userService.createUser(user).getId();
+
+        userService.changeStatus(id, UserStatus.OFFLINE);
+        statusBuffer.flush();
+        assertEquals(0, userService.getUserSummaryById(id).getVersion());
+
+        userService.changeStatus(id, UserStatus.ONLINE);
+        statusBuffer.flush();
+        userService.changeStatus(id, UserStatus.ONLINE);
+        statusBuffer.flush();
+        assertEquals(1, userService.getUserSummaryById(id).getVersion());
+    }
+
+    @Test
+    public void updateUser_statusFlushedConcurrently_throwsConflict() {
+        User user = new User();
+        user.setUsername("testUsername");
+        user.setPassword("hash");
+        long id = userService.createUser(user).getId();
+
+        User userInput = new User();
+        userInput.setUsername("newUsername");
+
+        // the update loads the user, then a flush on another thread writes its status before the update is written
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> transactionTemplate.executeWithoutResult(transaction -> {
+                    userRepository.findById(id).orElseThrow();
+                    CompletableFuture.runAsync(() -> {
+                        userService.changeStatus(id, UserStatus.ONLINE);
+                        statusBuffer.flush();
+                    }).join();
+                    userService.updateUser(userInput, id);
+                }));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals(0, statusBuffer.size());
+        User storedUser = userService.getUserById(id);
+        assertEquals(UserStatus.ONLINE, storedUser.getStatus());
+        assertEquals("testUsername", storedUser.getUsername());
+        assertEquals(1, storedUser.getVersion());
     }
 }
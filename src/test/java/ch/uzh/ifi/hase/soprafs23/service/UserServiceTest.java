@@ -3,15 +3,25 @@ package ch.uzh.ifi.hase.soprafs23.service;
 import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
 import ch.uzh.ifi.hase.soprafs23.entity.User;
 import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class UserServiceTest {
@@ -25,6 +35,15 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserStatusBuffer statusBuffer;
+
+    @Mock
+    private PresenceRegistry presenceRegistry;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private User testUser;
 
     @BeforeEach
@@ -64,12 +83,61 @@ public class UserServiceTest {
         // given -> a first user has already been created
         userService.createUser(testUser);
 
-        // when -> setup additional mocks for UserRepository
-        Mockito.when(userRepository.findByUsername(Mockito.any())).thenReturn(testUser);
+        // when -> the unique constraint of the username is violated on flush
+        Mockito.doThrow(new DataIntegrityViolationException("duplicate username",
+                new ConstraintViolationException("duplicate username", null, User.USERNAME_CONSTRAINT)))
+                .when(userRepository).flush();
 
         // then -> attempt to create second user with same user -> check that an error
         // is thrown
         assertThrows(ResponseStatusException.class, () -> userService.createUser(testUser));
     }
 
+    @Test
+    public void getUserSummaryById_flushDuringQuery_returnsPendingStatus() {
+        Mockito.when(statusBuffer.getPendingStatus(1L)).thenReturn(Optional.of(UserStatus.ONLINE));
+        Mockito.when(userRepository.findSummaryById(1L)).thenAnswer(invocation -> {
+            // the query reads the old status, then a flush writes the new one and removes it from the buffer
+            Mockito.when(statusBuffer.getPendingStatus(1L)).thenReturn(Optional.empty());
+            return Optional.of(new UserSummary(1L, "testUsername", UserStatus.OFFLINE, null, LocalDate.now(), 0));
+        });
+
+        assertEquals(UserStatus.ONLINE, userService.getUserSummaryById(1L).getStatus());
+    }
+
+    @Test
+    public void getUserSummariesByIds_flushDuringQuery_returnsPendingStatus() {
+        List<Long> ids = List.of(1L, 2L);
+        Mockito.when(statusBuffer.getPendingStatuses(ids)).thenReturn(Map.of(2L, UserStatus.ONLINE));
+        Mockito.when(userRepository.findSummariesByIds(ids)).thenAnswer(invocation -> {
+            // the query reads the old status, then a flush writes the new one and removes it from the buffer
+            Mockito.when(statusBuffer.getPendingStatuses(ids)).thenReturn(Map.of());
+            return List.of(new UserSummary(1L, "first", UserStatus.OFFLINE, null, LocalDate.now(), 0),
+                    new UserSummary(2L, "second", UserStatus.OFFLINE, null, LocalDate.now(), 0));
+        });
+
+        Map<Long, UserSummary> users = userService.getUserSummariesByIds(ids);
+
+        assertEquals(UserStatus.OFFLINE, users.get(1L).getStatus());
+        assertEquals(UserStatus.ONLINE, users.get(2L).getStatus());
+    }
+
+    @Test
+    public void updateUser_pendingStatus_notWrittenWithUpdate() {
+        // a logout has been flushed since the pending status was read, the user is loaded as offline
+        Mockito.when(statusBuffer.getPendingStatus(1L)).thenReturn(Optional.of(UserStatus.ONLINE));
+        testUser.setStatus(UserStatus.OFFLINE);
+        testUser.setCreationDate(LocalDate.now());
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        User userInput = new User();
+        userInput.setUsername("newUsername");
+        UserSummary updatedUser = userService.updateUser(userInput, 1L);
+
+        ArgumentCaptor<User> savedUser = ArgumentCaptor.forClass(User.class);
+        Mockito.verify(userRepository).save(savedUser.capture());
+        assertEquals(UserStatus.OFFLINE, savedUser.getValue().getStatus());
+        assertEquals("newUsername", updatedUser.getUsername());
+        assertEquals(UserStatus.ONLINE, updatedUser.getStatus());
+    }
 }
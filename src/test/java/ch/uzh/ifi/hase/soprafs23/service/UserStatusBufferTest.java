@@ -0,0 +1,56 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserStatusBufferTest {
+
+    private UserRepository userRepository;
+
+    private UserStatusBuffer statusBuffer;
+
+    @BeforeEach
+    public void setup() {
+        userRepository = Mockito.mock(UserRepository.class);
+        PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenReturn(new SimpleTransactionStatus());
+
+        statusBuffer = new UserStatusBuffer(userRepository, transactionManager);
+    }
+
+    @Test
+    public void flush_concurrentFlushes_writtenOnce() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        Mockito.when(userRepository.updateStatuses(Mockito.any(), Mockito.anyCollection())).thenAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(written.await(5, TimeUnit.SECONDS));
+            return 1;
+        });
+        statusBuffer.record(1L, UserStatus.ONLINE);
+
+        // the second flush starts while the first one is writing the status
+        CompletableFuture<Void> firstFlush = CompletableFuture.runAsync(statusBuffer::flush);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> secondFlush = CompletableFuture.runAsync(statusBuffer::flush);
+        Thread.sleep(100);
+        written.countDown();
+        firstFlush.get(5, TimeUnit.SECONDS);
+        secondFlush.get(5, TimeUnit.SECONDS);
+
+        Mockito.verify(userRepository, Mockito.times(1)).updateStatuses(UserStatus.ONLINE, List.of(1L));
+        assertEquals(0, statusBuffer.size());
+    }
+}
@@ -0,0 +1,75 @@
+package ch.uzh.ifi.hase.soprafs23.service;
+
+import ch.uzh.ifi.hase.soprafs23.constant.UserStatus;
+import ch.uzh.ifi.hase.soprafs23.repository.UserSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UsernameIndexTest {
+
+    private UserService userService;
+
+    private UsernameIndex usernameIndex;
+
+    @BeforeEach
+    public void setup() {
+        userService = Mockito.mock(UserService.class);
+
+        usernameIndex = new UsernameIndex(userService);
+    }
+
+    @Test
+    public void search_prefix_matchesInUsernameOrder() {
+        usernameIndex.put(1L, "bob");
+        usernameIndex.put(2L, "alice");
+        usernameIndex.put(3L, "alan");
+        usernameIndex.put(4L, "al");
+
+        assertEquals(List.of(Map.entry("al", 4L), Map.entry("alan", 3L), Map.entry("alice", 2L)),
+                usernameIndex.search("al", 10));
+        assertEquals(List.of(Map.entry("al", 4L), Map.entry("alan", 3L)), usernameIndex.search("al", 2));
+        assertEquals(List.of(), usernameIndex.search("Al", 10));
+        assertThrows(ResponseStatusException.class, () -> usernameIndex.search(" ", 10));
+        assertThrows(ResponseStatusException.class, () -> usernameIndex.search("al", UsernameIndex.MAX_LIMIT + 1));
+    }
+
+    @Test
+    public void onUserChanged_renamed_replacesUsername() {
+        usernameIndex.onUserChanged(new UserChangedEvent(1L, "alice", UserStatus.OFFLINE, null));
+        usernameIndex.onUserChanged(UserChangedEvent.statusChanged(1L, UserStatus.ONLINE));
+        usernameIndex.onUserChanged(new UserChangedEvent(1L, "bob", null, null));
+        // another user takes the old username
+        usernameIndex.onUserChanged(new UserChangedEvent(2L, "alice", UserStatus.OFFLINE, null));
+
+        assertEquals(List.of(Map.entry("alice", 2L)), usernameIndex.search("a", 10));
+        assertEquals(List.of(Map.entry("bob", 1L)), usernameIndex.search("b", 10));
+        assertEquals(2, usernameIndex.size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void run_loadsUsers_keepsNewerRenames() {
+        usernameIndex.put(1L, "renamed");
+        Mockito.doAnswer(invocation -> {
+            Consumer<UserSummary> consumer = invocation.getArgument(0);
+            consumer.accept(new UserSummary(1L, "stale", UserStatus.OFFLINE, null, LocalDate.now(), 0));
+            consumer.accept(new UserSummary(2L, "second", UserStatus.OFFLINE, null, LocalDate.now(), 0));
+            return null;
+        }).when(userService).streamUsers(Mockito.any(Consumer.class));
+
+        usernameIndex.run(null);
+
+        assertEquals(List.of(Map.entry("renamed", 1L)), usernameIndex.search("r", 10));
+        assertEquals(List.of(), usernameIndex.search("stale", 10));
+        assertEquals(List.of(Map.entry("second", 2L)), usernameIndex.search("s", 10));
+    }
+}